@@ -0,0 +1,35 @@
+package flashcards;
+
+/**
+ * Where a FlashcardDisplayer session gets its input from: the commands, the file
+ * names to save to, and the grades for the cards it shows. ConsoleAnswerSource
+ * asks the user; ScriptedAnswerSource replays answers recorded in a file or
+ * given in memory, as fast as the deck can take them.
+ * @author Aris Karamustafic
+ */
+
+public interface AnswerSource {
+
+  /** The grade for a card the user got right. */
+  public static final int CORRECT = 1;
+
+  /** The grade for a card the user got wrong. */
+  public static final int INCORRECT = 2;
+
+  /** Returned by grade when there is no more input. */
+  public static final int NO_ANSWER = 0;
+
+  /** Returns the next command word (quiz, save, stats or exit), or null if there is no more input. */
+  public String nextCommand();
+
+  /** Returns the name of the file to save the flashcards to, or null if there is no
+   * more input. again is true if the last name given could not be written.
+   */
+  public String nextFileName(boolean again);
+
+  /** Shows the front of flashcard and then, once the user has thought of the answer, its back. */
+  public void show(Flashcard flashcard);
+
+  /** Returns CORRECT or INCORRECT for flashcard, or NO_ANSWER if there is no more input. */
+  public int grade(Flashcard flashcard);
+}
@@ -0,0 +1,255 @@
+package flashcards;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A compact binary deck format (conventionally named *.fcdk) that can be loaded
+ * by memory-mapping the file instead of parsing it. The file is laid out as:
+ *
+ *   header   magic "FCDK", version, number of cards, number of strings (4 ints)
+ *   cards    per card: due key (long, see Flashcard.toDueKey), schedule (long, see
+ *            SchedulingPolicy), front id, back id (ints)
+ *   offsets  number of strings + 1 ints; string i is bytes offsets[i] to offsets[i+1]
+ *   strings  UTF-8 text of every distinct front and back, each stored once
+ *
+ * Cards loaded from it only hold their due date and string ids; their text is
+ * decoded from the mapped file each time it is asked for. Due dates are kept to
+ * the millisecond, and a deck file has to be smaller than 2GB. Decks of version 1,
+ * whose cards have no schedule, are still read.
+ * @author Aris Karamustafic
+ */
+
+public class BinaryDeck {
+
+  public static final int MAGIC = 0x4643444B;          // "FCDK"
+  public static final int VERSION = 2;
+  private static final int HEADER_SIZE = 16;
+  private static final int CARD_SIZE = 24;
+  private static final int VERSION_1_CARD_SIZE = 16;   // before cards had a schedule
+
+  /** Returns true if the file at filePath starts with the binary deck magic number. */
+  public static boolean isBinaryDeck(String filePath) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(4);
+      while (magic.hasRemaining() && channel.read(magic) > 0) {
+      }
+      return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+    }
+  }
+
+  /** Returns true if decks written to filePath should use this format. */
+  public static boolean isBinaryPath(String filePath) {
+    return filePath.endsWith(".fcdk");
+  }
+
+  /**
+   * Maps the binary deck at filePath and returns its cards, in file order.
+   * Throws an IOException if the file can not be read or is not a valid deck.
+   */
+  public static List<Flashcard> read(String filePath) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(filePath + " is too large for a binary deck");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());   // the mapping stays valid after the channel is closed
+    }
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException(filePath + " is not a binary deck");
+    }
+    int version = buffer.getInt(4);
+    if (version != VERSION && version != 1) {
+      throw new IOException(filePath + " has unsupported binary deck version " + version);
+    }
+    int cardSize = (version == 1) ? VERSION_1_CARD_SIZE : CARD_SIZE;
+    int idsAt = cardSize - 8;                            // where the front and back ids are in a card
+    int cardCount = buffer.getInt(8);
+    int stringCount = buffer.getInt(12);
+    long offsetsStart = HEADER_SIZE + (long) cardCount * cardSize;
+    long stringsStart = offsetsStart + 4L * (stringCount + 1);
+    if (cardCount < 0 || stringCount < 0 || stringsStart > buffer.limit()
+        || stringsStart + buffer.getInt((int) offsetsStart + 4 * stringCount) != buffer.limit()) {
+      throw new IOException(filePath + " is a damaged binary deck");
+    }
+    int previous = 0;
+    for (int i = 0; i <= stringCount; i++) {              // so that a bad offset fails here rather than when the card is shown
+      int offset = buffer.getInt((int) offsetsStart + 4 * i);
+      if (offset < previous || (i == 0 && offset != 0)) {
+        throw new IOException(filePath + " is a damaged binary deck (string " + i + ")");
+      }
+      previous = offset;
+    }
+    Strings strings = new Strings(buffer, (int) offsetsStart, (int) stringsStart);
+    ArrayList<Flashcard> cards = new ArrayList<Flashcard>(cardCount);
+    for (int i = 0; i < cardCount; i++) {
+      int record = HEADER_SIZE + i * cardSize;
+      int frontId = buffer.getInt(record + idsAt);
+      int backId = buffer.getInt(record + idsAt + 4);
+      if (frontId < 0 || frontId >= stringCount || backId < 0 || backId >= stringCount) {
+        throw new IOException(filePath + " is a damaged binary deck (card " + (i + 1) + ")");
+      }
+      MappedFlashcard card = new MappedFlashcard(buffer.getLong(record), strings, frontId, backId);
+      if (version != 1) {
+        card.setSchedule(buffer.getLong(record + 8));
+      }
+      cards.add(card);
+    }
+    return cards;
+  }
+
+  /**
+   * Writes the cards to outFilePath in the binary format, storing every distinct
+   * text once. Like DeckWriter, it writes a temporary file and renames it over
+   * the target, so a failed write leaves the old file untouched.
+   */
+  public static void write(Iterator<Flashcard> flashcards, String outFilePath) throws IOException {
+    HashMap<String, Integer> ids = new HashMap<String, Integer>();
+    ArrayList<byte[]> strings = new ArrayList<byte[]>();
+    long[] dueKeys = new long[16];
+    long[] schedules = new long[16];
+    int[] textIds = new int[32];                         // front and back id of card i are at 2i and 2i+1
+    int cardCount = 0;
+    while (flashcards.hasNext()) {
+      Flashcard flashcard = flashcards.next();
+      if (cardCount == dueKeys.length) {
+        dueKeys = Arrays.copyOf(dueKeys, 2 * cardCount);
+        schedules = Arrays.copyOf(schedules, 2 * cardCount);
+        textIds = Arrays.copyOf(textIds, 4 * cardCount);
+      }
+      dueKeys[cardCount] = flashcard.getDueKey();
+      schedules[cardCount] = flashcard.getSchedule();
+      String[] texts = DeckWriter.texts(flashcard);
+      textIds[2 * cardCount] = id(texts[0], ids, strings);
+      textIds[2 * cardCount + 1] = id(texts[1], ids, strings);
+      cardCount++;
+    }
+
+    Path target = Paths.get(outFilePath).toAbsolutePath();
+    Path temp = DeckWriter.createTemp(target);
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(cardCount);
+        out.writeInt(strings.size());
+        for (int i = 0; i < cardCount; i++) {
+          out.writeLong(dueKeys[i]);
+          out.writeLong(schedules[i]);
+          out.writeInt(textIds[2 * i]);
+          out.writeInt(textIds[2 * i + 1]);
+        }
+        int offset = 0;
+        for (byte[] string : strings) {
+          out.writeInt(offset);
+          offset += string.length;
+        }
+        out.writeInt(offset);
+        for (byte[] string : strings) {
+          out.write(string);
+        }
+      }
+      DeckWriter.replace(temp, target);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /** Returns the id of text in the string table, adding it if it is new. */
+  private static int id(String text, HashMap<String, Integer> ids, ArrayList<byte[]> strings) {
+    Integer id = ids.get(text);
+    if (id == null) {
+      id = strings.size();
+      ids.put(text, id);
+      strings.add(text.getBytes(StandardCharsets.UTF_8));
+    }
+    return id;
+  }
+
+  /** The string table of a mapped deck, whose offsets read has checked. */
+  private static class Strings {
+
+    private final ByteBuffer buffer;
+    private final int offsetsStart;
+    private final int stringsStart;
+
+    Strings(ByteBuffer buffer, int offsetsStart, int stringsStart) {
+      this.buffer = buffer;
+      this.offsetsStart = offsetsStart;
+      this.stringsStart = stringsStart;
+    }
+
+    String get(int id) {
+      int start = buffer.getInt(offsetsStart + 4 * id);
+      int end = buffer.getInt(offsetsStart + 4 * id + 4);
+      byte[] bytes = new byte[end - start];
+      buffer.get(stringsStart + start, bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  /** A card whose text is decoded from the mapped deck only when it is asked for. */
+  private static class MappedFlashcard extends Flashcard {
+
+    private final Strings strings;
+    private final int frontId;
+    private final int backId;
+
+    MappedFlashcard(long dueKey, Strings strings, int frontId, int backId) {
+      super(dueKey, 0, null, null);
+      this.strings = strings;
+      this.frontId = frontId;
+      this.backId = backId;
+    }
+
+    @Override
+    public String getFrontText() {
+      return strings.get(frontId);
+    }
+
+    @Override
+    public String getBackText() {
+      return strings.get(backId);
+    }
+  }
+
+  /**
+   * Converts between the text and binary formats:
+   *   java BinaryDeck pack deck.txt deck.fcdk
+   *   java BinaryDeck unpack deck.fcdk deck.txt
+   */
+  public static void main(String[] args) {
+    if (args.length != 3 || !(args[0].equals("pack") || args[0].equals("unpack"))) {
+      System.err.println("Usage: java BinaryDeck pack <deck.txt> <deck.fcdk>  or  java BinaryDeck unpack <deck.fcdk> <deck.txt>");
+      return;
+    }
+    try {
+      if (args[0].equals("pack")) {
+        DeckReader deckReader = new DeckReader();
+        List<Flashcard> cards = deckReader.read(args[1]);
+        for (String problem : deckReader.getProblems()) {
+          System.out.println("Skipped " + problem);
+        }
+        write(cards.iterator(), args[2]);
+      } else {
+        DeckWriter.write(read(args[1]).iterator(), args[2]);      // written as text unless the name ends in .fcdk
+      }
+    } catch (IOException e) {
+      System.out.println(e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package flashcards;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the front and back text of LazyFlashcards from their deck file, keeping
+ * the texts read most recently in memory up to about maxBytes. When the cache is
+ * full, the texts that were used longest ago are dropped. Every call to get is
+ * one lookup, counted as a hit or a miss; a card's front and back are looked up
+ * together, so code that needs both asks once (see Flashcard.getTexts). The file stays open
+ * until close, so on systems where a renamed-over file can still be read (Linux,
+ * macOS) the cards keep reading the version they were loaded from, even after a
+ * save or a journal compaction replaces the deck.
+ * @author Aris Karamustafic
+ */
+
+public class CardTextCache implements CardTextCacheMBean, Closeable {
+
+  private static final int ENTRY_OVERHEAD = 96;                 // rough bytes of map entry, key, array and two Strings around the characters
+  private static final int READ_SIZE = 256;                     // bytes read at a time when looking for the end of a line
+
+  private final FileChannel channel;
+  private final long maxBytes;
+  private final LinkedHashMap<Long, String[]> texts;            // line offset -> {front, back}, least recently used first
+  private long bytes;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public CardTextCache(String filePath, long maxBytes) throws IOException {
+    channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+    this.maxBytes = maxBytes;
+    texts = new LinkedHashMap<Long, String[]>(16, 0.75f, true);
+  }
+
+  /** Returns {front, back} of the card on the line that starts at offset. The array must not be changed. */
+  public synchronized String[] get(long offset) {
+    String[] cardTexts = texts.get(offset);
+    if (cardTexts != null) {
+      hits++;
+      return cardTexts;
+    }
+    misses++;
+    cardTexts = read(offset);
+    texts.put(offset, cardTexts);
+    bytes += size(cardTexts);
+    Iterator<Map.Entry<Long, String[]>> eldest = texts.entrySet().iterator();
+    while (bytes > maxBytes && texts.size() > 1) {               // the card just read is always kept
+      bytes -= size(eldest.next().getValue());
+      eldest.remove();
+      evictions++;
+    }
+    return cardTexts;
+  }
+
+  /**
+   * Returns {front, back} of the card at offset read from the file, without
+   * looking in the cache, adding to it or counting a lookup, e.g. to save a deck.
+   */
+  String[] readThrough(long offset) {
+    return read(offset);                                         // positional reads, so no lock is needed
+  }
+
+  private static long size(String[] cardTexts) {
+    return ENTRY_OVERHEAD + 2L * (cardTexts[0].length() + cardTexts[1].length());
+  }
+
+  /** Reads the line at offset and splits off its front and back text. */
+  private String[] read(long offset) {
+    try {
+      ByteBuffer line = ByteBuffer.allocate(READ_SIZE);
+      int end = -1;
+      int scanned = 0;
+      while (end < 0) {
+        if (!line.hasRemaining()) {
+          ByteBuffer longer = ByteBuffer.allocate(2 * line.capacity());
+          line.flip();
+          longer.put(line);
+          line = longer;
+        }
+        int read = channel.read(line, offset + line.position());
+        for (int i = scanned; i < line.position(); i++) {
+          if (line.get(i) == '\n') {
+            end = i;
+            break;
+          }
+        }
+        scanned = line.position();
+        if (read < 0 && end < 0) {
+          end = line.position();                                 // the last line of the file has no newline
+        }
+      }
+      if (end > 0 && line.get(end - 1) == '\r') {
+        end--;
+      }
+      String text = new String(line.array(), 0, end, StandardCharsets.UTF_8);
+      int firstTab = text.indexOf('\t');
+      int secondTab = text.indexOf('\t', firstTab + 1);
+      if (firstTab < 0 || secondTab < 0) {
+        throw new IllegalStateException("The deck file changed: the line at byte " + offset + " is not a card any more");
+      }
+      int thirdTab = text.indexOf('\t', secondTab + 1);               // before the schedule, if the card has one
+      return new String[] {text.substring(firstTab + 1, secondTab), text.substring(secondTab + 1, (thirdTab < 0) ? text.length() : thirdTab)};
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);                         // the text is wanted from a getter, which can not throw an IOException
+    }
+  }
+
+  @Override
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  @Override
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  @Override
+  public synchronized double getHitRate() {
+    return (hits + misses) == 0 ? 0 : (double) hits / (hits + misses);
+  }
+
+  @Override
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized int getEntries() {
+    return texts.size();
+  }
+
+  @Override
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    texts.clear();
+    bytes = 0;
+    channel.close();
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("text     entries=%d bytes=%d of %d hits=%d misses=%d hit rate=%.1f%% evictions=%d",
+        texts.size(), bytes, maxBytes, hits, misses, 100 * getHitRate(), evictions);
+  }
+}
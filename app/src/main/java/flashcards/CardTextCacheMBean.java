@@ -0,0 +1,23 @@
+package flashcards;
+
+/**
+ * What a CardTextCache shows over JMX.
+ * @author Aris Karamustafic
+ */
+
+public interface CardTextCacheMBean {
+
+  long getHits();
+
+  long getMisses();
+
+  double getHitRate();
+
+  long getEvictions();
+
+  int getEntries();
+
+  long getBytes();
+
+  long getMaxBytes();
+}
@@ -0,0 +1,420 @@
+package flashcards;
+
+import java.util.ArrayList;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe flashcard queue made of several independently locked heaps
+ * (shards), so that many threads can add and poll at the same time. Cards are
+ * added to a random shard. The due key and nanoseconds of every shard's first
+ * card are published in atomic arrays, so threads can pick a shard to poll
+ * without taking any lock, in the same order as Flashcard.compareTo.
+ *
+ * In strict mode peek and poll lock every shard and return the true earliest
+ * card, which makes the queue linearizable. In relaxed mode poll looks at two
+ * random shards and takes the earlier of their first cards (the "power of two
+ * choices"). It scales with the number of threads, but the card it returns may
+ * be a little later than the earliest one in the queue. A thread that finds its
+ * shard locked spins a little longer on each try, and after a few tries waits for
+ * the lock instead of spinning. drainTo and drainBefore check each card under the
+ * lock of the shard it is taken from, so drainBefore never takes a card that is
+ * not before its bound; in relaxed mode the cards may come out a little out of order.
+ * @author Aris Karamustafic
+ */
+
+public class ConcurrentFlashcardPriorityQueue implements PriorityQueue<Flashcard> {
+
+  private static final long EMPTY = Long.MAX_VALUE;   // the published head key of a shard with no cards
+  private static final int MAX_SPINS = 64;            // the most a relaxed poll spins between two tries at a lock
+  private static final int MAX_TRIES = 8;             // after this many tries it waits for the lock
+
+  private final EpochFlashcardPriorityQueue[] shards;
+  private final ReentrantLock[] locks;
+  private final AtomicLongArray headKeys;             // headKeys[i] is the due key of shards[i].peek(), or EMPTY
+  private final AtomicIntegerArray headNanos;         // and headNanos[i] its due nanos, for cards due in the same millisecond
+  private final AtomicInteger size;
+  private final boolean strict;
+
+  /** Creates a queue with two shards per processor, in relaxed mode. */
+  public ConcurrentFlashcardPriorityQueue() {
+    this(2 * Runtime.getRuntime().availableProcessors(), false);
+  }
+
+  /**
+   * Creates a queue with the given number of shards. If strict is true, peek
+   * and poll always return the earliest card in the queue.
+   */
+  public ConcurrentFlashcardPriorityQueue(int shardCount, boolean strict) {
+    shards = new EpochFlashcardPriorityQueue[shardCount];
+    locks = new ReentrantLock[shardCount];
+    headKeys = new AtomicLongArray(shardCount);
+    headNanos = new AtomicIntegerArray(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new EpochFlashcardPriorityQueue();
+      locks[i] = new ReentrantLock();
+      headKeys.set(i, EMPTY);
+    }
+    size = new AtomicInteger();
+    this.strict = strict;
+  }
+
+  /** Adds the given item to a random shard. */
+  public void add(Flashcard flashcard) {
+    int shard = ThreadLocalRandom.current().nextInt(shards.length);
+    locks[shard].lock();
+    try {
+      shards[shard].add(flashcard);
+      publishHead(shard);
+      size.incrementAndGet();
+    } finally {
+      locks[shard].unlock();
+    }
+  }
+
+  /** Deals the flashcards out to the shards like cards to players, then bulk-adds each
+   * shard's hand. A saved deck is sorted, so cutting it into slices instead would put
+   * all the earliest cards in one shard, and a relaxed poll would often miss them.
+   */
+  @Override
+  public void addAll(Collection<? extends Flashcard> flashcards) {
+    List<List<Flashcard>> hands = new ArrayList<List<Flashcard>>(shards.length);
+    for (int shard = 0; shard < shards.length; shard++) {
+      hands.add(new ArrayList<Flashcard>(flashcards.size() / shards.length + 1));
+    }
+    int next = 0;
+    for (Flashcard flashcard : flashcards) {
+      hands.get(next).add(flashcard);
+      next = (next + 1 == shards.length) ? 0 : next + 1;
+    }
+    for (int shard = 0; shard < shards.length; shard++) {
+      List<Flashcard> hand = hands.get(shard);
+      locks[shard].lock();
+      try {
+        shards[shard].addAll(hand);
+        publishHead(shard);
+        size.addAndGet(hand.size());
+      } finally {
+        locks[shard].unlock();
+      }
+      hands.set(shard, null);                          // the shard has its own copy now
+    }
+  }
+
+  /** Removes the first item according to compareTo from the queue (or, in relaxed
+   * mode, one of the first items), and returns it. Throws a NoSuchElementException
+   * if the queue is empty.
+   */
+  public Flashcard poll() {
+    if (strict) {
+      lockAll();
+      try {
+        int shard = earliestShard();
+        Flashcard flashcard = shards[shard].poll();
+        publishHead(shard);
+        size.decrementAndGet();
+        return flashcard;
+      } finally {
+        unlockAll();
+      }
+    }
+    Flashcard flashcard = pollBefore(null);
+    if (flashcard == null) {
+      throw new NoSuchElementException();
+    }
+    return flashcard;
+  }
+
+  /** Removes up to maxItems cards into sink, as poll would take them. */
+  @Override
+  public int drainTo(Collection<? super Flashcard> sink, int maxItems) {
+    return drain(null, sink, maxItems);
+  }
+
+  /** Removes up to maxItems cards that come before bound into sink, as poll would take them. */
+  @Override
+  public int drainBefore(Flashcard bound, Collection<? super Flashcard> sink, int maxItems) {
+    return drain(bound, sink, maxItems);
+  }
+
+  /** Removes up to maxItems cards that come before bound (any cards, if bound is null) into sink. */
+  private int drain(Flashcard bound, Collection<? super Flashcard> sink, int maxItems) {
+    int count = 0;
+    if (strict) {
+      lockAll();                                       // one lock of every shard for the whole page
+      try {
+        while (count < maxItems) {
+          int shard = firstShard();
+          if (shard < 0 || (bound != null && shards[shard].peek().compareTo(bound) >= 0)) {
+            break;
+          }
+          sink.add(shards[shard].poll());
+          publishHead(shard);
+          size.decrementAndGet();
+          count++;
+        }
+      } finally {
+        unlockAll();
+      }
+      return count;
+    }
+    while (count < maxItems) {
+      Flashcard flashcard = pollBefore(bound);
+      if (flashcard == null) {
+        break;
+      }
+      sink.add(flashcard);
+      count++;
+    }
+    return count;
+  }
+
+  /** Removes and returns the first card of one of the two random shards, as a relaxed poll does,
+   * if it comes before bound (or bound is null). Returns null if no shard has such a card.
+   */
+  private Flashcard pollBefore(Flashcard bound) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int tries = 0;
+    while (true) {
+      int first = random.nextInt(shards.length);
+      int second = random.nextInt(shards.length);
+      int shard = isBefore(second, first) ? second : first;
+      if (!isHeadBefore(shard, bound)) {
+        shard = firstShard();                          // neither pick has a card to give, so look at every shard
+        if (shard < 0 || !isHeadBefore(shard, bound)) {
+          return null;
+        }
+      }
+      tries++;
+      if (tries >= MAX_TRIES) {
+        locks[shard].lock();                           // the shards stay busy, so wait in line rather than spin
+      } else if (!locks[shard].tryLock()) {            // someone else is using this shard: back off, then pick again
+        for (int spin = Math.min(1 << tries, MAX_SPINS); spin > 0; spin--) {
+          Thread.onSpinWait();
+        }
+        continue;
+      }
+      try {
+        if (!shards[shard].isEmpty() && (bound == null || shards[shard].peek().compareTo(bound) < 0)) {    // checked again under the lock
+          Flashcard flashcard = shards[shard].poll();
+          publishHead(shard);
+          size.decrementAndGet();
+          return flashcard;
+        }
+      } finally {
+        locks[shard].unlock();
+      }
+      tries = 0;                                       // the shard's first card was taken while we picked it; that is not contention
+    }
+  }
+
+  /** Returns the first item according to compareTo in the queue (in relaxed mode,
+   * as of a moment ago), without removing it. Throws a NoSuchElementException if
+   * the queue is empty.
+   */
+  public Flashcard peek() {
+    if (strict) {
+      lockAll();
+      try {
+        return shards[earliestShard()].peek();
+      } finally {
+        unlockAll();
+      }
+    }
+    while (true) {
+      int shard = earliestShard();
+      locks[shard].lock();
+      try {
+        if (!shards[shard].isEmpty()) {
+          return shards[shard].peek();
+        }
+      } finally {
+        locks[shard].unlock();
+      }
+    }
+  }
+
+  /** Returns a snapshot of all cards from earliest to latest, taken with every shard locked. */
+  public Iterator<Flashcard> orderedIterator() {
+    List<Flashcard> snapshot = new ArrayList<Flashcard>(Math.max(size.get(), 0));
+    lockAll();
+    try {
+      for (EpochFlashcardPriorityQueue shard : shards) {
+        Iterator<Flashcard> cards = shard.orderedIterator();
+        while (cards.hasNext()) {
+          snapshot.add(cards.next());
+        }
+      }
+    } finally {
+      unlockAll();
+    }
+    snapshot.sort(null);
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  /** Returns true if the queue is empty. */
+  public boolean isEmpty() {
+    return size.get() == 0;
+  }
+
+  /** Removes all items from the queue. */
+  public void clear() {
+    lockAll();
+    try {
+      for (int i = 0; i < shards.length; i++) {
+        shards[i].clear();
+        headKeys.set(i, EMPTY);
+        headNanos.set(i, 0);
+      }
+      size.set(0);
+    } finally {
+      unlockAll();
+    }
+  }
+
+  /** Returns the shard whose first card is due earliest, without locking.
+   * Throws a NoSuchElementException if every shard is empty.
+   */
+  private int earliestShard() {
+    int earliest = firstShard();
+    if (earliest < 0) {
+      throw new NoSuchElementException();
+    }
+    return earliest;
+  }
+
+  /** Returns the shard whose first card is due earliest, without locking, or -1 if every shard is empty. */
+  private int firstShard() {
+    int earliest = 0;
+    for (int i = 1; i < shards.length; i++) {
+      if (isBefore(i, earliest)) {
+        earliest = i;
+      }
+    }
+    return (headKeys.get(earliest) == EMPTY) ? -1 : earliest;
+  }
+
+  /** Returns true if the published first card of shard comes before bound (or, if bound is null, if there is one). */
+  private boolean isHeadBefore(int shard, Flashcard bound) {
+    long key = headKeys.get(shard);
+    if (key == EMPTY || bound == null) {
+      return key != EMPTY;
+    }
+    return key < bound.getDueKey() || (key == bound.getDueKey() && headNanos.get(shard) < bound.getDueNanos());
+  }
+
+  /** Returns true if the published first card of shard a comes before that of shard b, as by Flashcard.compareTo. */
+  private boolean isBefore(int a, int b) {
+    long keyA = headKeys.get(a);
+    long keyB = headKeys.get(b);
+    return keyA < keyB || (keyA == keyB && headNanos.get(a) < headNanos.get(b));
+  }
+
+  /** Publishes the head key and nanos of a shard; the caller must hold its lock. */
+  private void publishHead(int shard) {
+    if (shards[shard].isEmpty()) {
+      headKeys.set(shard, EMPTY);
+      headNanos.set(shard, 0);
+    } else {
+      Flashcard head = shards[shard].peek();
+      headNanos.set(shard, head.getDueNanos());
+      headKeys.set(shard, head.getDueKey());
+    }
+  }
+
+  /** Locks every shard, always in the same order so two threads can not deadlock. */
+  private void lockAll() {
+    for (ReentrantLock lock : locks) {
+      lock.lock();
+    }
+  }
+
+  private void unlockAll() {
+    for (int i = locks.length - 1; i >= 0; i--) {
+      locks[i].unlock();
+    }
+  }
+
+  public static void main(String[] args) {
+
+    ConcurrentFlashcardPriorityQueue flashcards = new ConcurrentFlashcardPriorityQueue(4, true);
+    flashcards.add(new Flashcard("2021-11-29T12:11", "Belgrade", "Serbia"));
+    flashcards.add(new Flashcard("2021-11-29T12:10", "Sarajevo", "Bosnia and Herzegovina"));
+    flashcards.add(new Flashcard("2021-11-29T12:08", "Zagreb", "Croatia"));
+    flashcards.add(new Flashcard("2021-11-29T12:07:00.000000500", "Skopje", "North Macedonia"));    // due in the same millisecond as Tirana, but later
+    flashcards.add(new Flashcard("2021-11-29T12:07", "Tirana", "Albania"));
+
+    // test for strict poll() order
+    System.err.println("This should print out Tirana: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Skopje: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Zagreb: " + flashcards.peek().getFrontText());
+    System.err.println("This should print out Zagreb: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Sarajevo: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Belgrade: " + flashcards.poll().getFrontText());
+    if (!flashcards.isEmpty()) {
+      System.err.println("The queue is empty, but isEmpty() returns false.");
+    }
+
+    // test for addAll() of a sorted deck: every shard gets some of the earliest cards
+    ConcurrentFlashcardPriorityQueue sorted = new ConcurrentFlashcardPriorityQueue(4, false);
+    List<Flashcard> sortedCards = new ArrayList<Flashcard>();
+    for (int i = 0; i < 1000; i++) {
+      sortedCards.add(new Flashcard(LocalDateTime.parse("2021-11-29T12:00").plusMinutes(i), "Card " + i, ""));
+    }
+    sorted.addAll(sortedCards);
+    int latest = 0;
+    for (int i = 0; i < 100; i++) {
+      latest = Math.max(latest, Integer.parseInt(sorted.poll().getFrontText().substring(5)));
+    }
+    System.err.println("This should print out true: " + (latest < 200) + " (the latest of the first 100 polls was card " + latest + ")");
+
+    // test for drainBefore() with many threads: only due cards are taken, and each of them once
+    for (boolean strict : new boolean[] {true, false}) {
+      ConcurrentFlashcardPriorityQueue deck = new ConcurrentFlashcardPriorityQueue(8, strict);
+      LocalDateTime start = LocalDateTime.parse("2021-11-29T12:00");
+      List<Flashcard> cards = new ArrayList<Flashcard>();
+      for (int i = 0; i < 200_000; i++) {
+        cards.add(new Flashcard(start.plusSeconds(i), "Card " + i, ""));
+      }
+      deck.addAll(cards);
+      Flashcard bound = new Flashcard(start.plusSeconds(100_000), "", "");
+      AtomicInteger drained = new AtomicInteger();
+      AtomicInteger notDue = new AtomicInteger();
+      Thread[] threads = new Thread[8];
+      for (int t = 0; t < threads.length; t++) {
+        threads[t] = new Thread(() -> {
+          List<Flashcard> page = new ArrayList<Flashcard>();
+          while (deck.drainBefore(bound, page, 16) > 0) {
+            for (Flashcard card : page) {
+              if (card.compareTo(bound) >= 0) {
+                notDue.incrementAndGet();
+              }
+            }
+            drained.addAndGet(page.size());
+            page.clear();
+          }
+        });
+        threads[t].start();
+      }
+      for (Thread thread : threads) {
+        try {
+          thread.join();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      System.err.println("This should print out 100000 drained, 0 not due: " + drained.get() + " drained, " + notDue.get() + " not due");
+      List<Flashcard> rest = new ArrayList<Flashcard>();
+      System.err.println("This should print out 100000: " + deck.drainTo(rest, Integer.MAX_VALUE));
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package flashcards;
+
+import java.io.InputStream;
+import java.util.Scanner;
+
+/**
+ * Asks the user at the console. One Scanner reads the whole session, line by line,
+ * so no typed input is lost between questions; the end of the input (e.g. Ctrl-D)
+ * ends the session.
+ * @author Aris Karamustafic
+ */
+
+public class ConsoleAnswerSource implements AnswerSource {
+
+  private final Scanner keyboard;
+
+  public ConsoleAnswerSource() {
+    this(System.in);
+  }
+
+  public ConsoleAnswerSource(InputStream in) {
+    keyboard = new Scanner(in);
+  }
+
+  /** Returns the next line the user types, or null if the input has ended. */
+  private String nextLine() {
+    return keyboard.hasNextLine() ? keyboard.nextLine() : null;
+  }
+
+  public String nextCommand() {                              // this asks the user to input a command word, and if it is not equal to one of the four
+    System.out.println("Enter a command - quiz, save, stats, or exit:");      // available command words, it asks the user to input a command word again.
+    String commandWord = nextLine();
+    while (commandWord != null && !commandWord.equals("quiz") && !commandWord.equals("save")
+        && !commandWord.equals("exit") && !commandWord.equals("stats")) {
+      System.err.println("That command word does not exist. Please try either 'quiz', 'save', 'stats' or 'exit'");
+      commandWord = nextLine();
+    }
+    return commandWord;
+  }
+
+  public String nextFileName(boolean again) {
+    if (again) {
+      System.out.println("Please input a different file name:");                 // the last file could not be made under that name
+    } else {
+      System.out.println("Type a filename where you'd like to save the flashcards:");
+    }
+    return nextLine();
+  }
+
+  public void show(Flashcard flashcard) {
+    System.out.println("\nCard:");
+    System.out.println(flashcard.getFrontText());
+    System.out.print("[Press return for back of the card]");
+    String returnKey = nextLine();
+    while (returnKey != null && !returnKey.equals("")) {
+      System.out.print("[Press return for back of the card]");   // the program only displays the back text after the user allows
+      returnKey = nextLine();                                    // it to, that is after the user thinks of the answer.
+    }
+    System.out.println(flashcard.getBackText());
+  }
+
+  public int grade(Flashcard flashcard) {
+    System.out.println("Press 1 if you got the card correct and 2 if you got the card incorrect.");
+    String answer = nextLine();
+    while (answer != null && !answer.trim().equals("1") && !answer.trim().equals("2")) {
+      System.out.println("Press 1 if you got the card correct and 2 if you got the card incorrect.");
+      answer = nextLine();
+    }
+    if (answer == null) {
+      return NO_ANSWER;
+    }
+    return answer.trim().equals("1") ? CORRECT : INCORRECT;
+  }
+}
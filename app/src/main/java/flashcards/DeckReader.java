@@ -0,0 +1,346 @@
+package flashcards;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads a tab-separated deck file (the format described in FlashcardDisplayer)
+ * into a list of flashcards. The file is cut into line-aligned chunks which are
+ * memory-mapped and parsed in parallel on a fork-join pool. Lines that are not
+ * properly formatted are skipped and reported by getProblems() with their line
+ * numbers, instead of crashing the load. Due dates are read by TimestampCodec
+ * straight from the mapped bytes. readLazily keeps only the due date and the
+ * position of each line, and leaves the text in the file (see LazyFlashcard).
+ * @author Aris Karamustafic
+ */
+
+public class DeckReader {
+
+  private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;    // bytes per chunk; also keeps every mapping well under 2GB
+  private static final int BOUNDARY_SCAN_SIZE = 4096;               // how much is read at a time when looking for the end of a line
+
+  private final ForkJoinPool pool;
+  private final int chunkSize;
+  private List<String> problems;
+
+  public DeckReader() {
+    this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  public DeckReader(ForkJoinPool pool, int chunkSize) {
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+    problems = new ArrayList<String>();
+  }
+
+  /**
+   * Reads every flashcard in the file, in file order. Throws an IOException if
+   * the file can not be opened or read. Binary decks (see BinaryDeck) are
+   * recognized by their header and mapped instead of parsed.
+   */
+  public List<Flashcard> read(String filePath) throws IOException {
+    return read(filePath, null);
+  }
+
+  /**
+   * Reads every flashcard in the file, in file order, as LazyFlashcards whose text
+   * is read through cache (which must be a cache of the same file) when it is
+   * needed. Binary decks already leave their text in the file, so they are read
+   * as usual.
+   */
+  public List<Flashcard> readLazily(String filePath, CardTextCache cache) throws IOException {
+    return read(filePath, cache);
+  }
+
+  private List<Flashcard> read(String filePath, CardTextCache cache) throws IOException {
+    if (BinaryDeck.isBinaryDeck(filePath)) {
+      problems = new ArrayList<String>();
+      return BinaryDeck.read(filePath);
+    }
+    try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+      long[] bounds = chunkBounds(channel);
+      ParseTask task = new ParseTask(channel, bounds, 0, bounds.length - 1, cache);
+      Chunk result = (bounds.length == 2) ? task.compute() : pool.invoke(task);   // a small file is not worth handing to the pool
+      if (result.error != null) {
+        throw result.error;
+      }
+      problems = new ArrayList<String>();
+      for (int i = 0; i < result.problems.size(); i++) {
+        problems.add("line " + result.problemLines.get(i) + ": " + result.problems.get(i));
+      }
+      return result.cards;
+    }
+  }
+
+  /** Returns the lines skipped by the last call to read, as "line N: reason". */
+  public List<String> getProblems() {
+    return problems;
+  }
+
+  /**
+   * Splits the file into chunks of roughly chunkSize bytes. Each boundary is
+   * moved forward to just after the next newline so that no line is split.
+   * Chunk i covers bytes bounds[i] up to bounds[i+1].
+   */
+  private long[] chunkBounds(FileChannel channel) throws IOException {
+    long size = channel.size();
+    ArrayList<Long> bounds = new ArrayList<Long>();
+    bounds.add(0L);
+    ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+    long position = chunkSize;
+    while (position < size) {
+      long lineEnd = -1;
+      while (lineEnd < 0 && position < size) {            // look for the next '\n' at or after position
+        scan.clear();
+        int read = channel.read(scan, position);
+        for (int i = 0; i < read; i++) {
+          if (scan.get(i) == '\n') {
+            lineEnd = position + i + 1;
+            break;
+          }
+        }
+        position += Math.max(read, 0);
+      }
+      if (lineEnd < 0 || lineEnd >= size) {
+        break;
+      }
+      bounds.add(lineEnd);
+      position = lineEnd + chunkSize;
+    }
+    bounds.add(size);
+    long[] result = new long[bounds.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = bounds.get(i);
+    }
+    return result;
+  }
+
+  /** The flashcards and problems found in a run of consecutive chunks. */
+  private static class Chunk {
+    List<Flashcard> cards = new ArrayList<Flashcard>();
+    List<String> problems = new ArrayList<String>();
+    List<Integer> problemLines = new ArrayList<Integer>();     // 1-based line numbers of problems, relative to the start of this run
+    int lineCount;
+    IOException error;
+
+    /** Appends a later run to this one, shifting its line numbers past this run's lines. */
+    void append(Chunk later) {
+      if (error == null) {
+        error = later.error;
+      }
+      cards.addAll(later.cards);
+      for (int i = 0; i < later.problems.size(); i++) {
+        problemLines.add(later.problemLines.get(i) + lineCount);
+      }
+      problems.addAll(later.problems);
+      lineCount += later.lineCount;
+    }
+
+    void report(int line, String reason) {
+      problemLines.add(line);
+      problems.add(reason);
+    }
+  }
+
+  /** Parses chunks first to last-1, splitting the range in half until one chunk is left. */
+  private static class ParseTask extends RecursiveTask<Chunk> {
+
+    private static final long serialVersionUID = 1L;
+    private final FileChannel channel;
+    private final long[] bounds;
+    private final int first;
+    private final int last;
+    private final CardTextCache cache;          // null unless the cards are read lazily
+
+    ParseTask(FileChannel channel, long[] bounds, int first, int last, CardTextCache cache) {
+      this.channel = channel;
+      this.bounds = bounds;
+      this.first = first;
+      this.last = last;
+      this.cache = cache;
+    }
+
+    /** The bytes of a mapped chunk as chars, so TimestampCodec can read dates from it without decoding them. */
+    private static class AsciiChars implements CharSequence {
+      private final ByteBuffer buffer;
+
+      AsciiChars(ByteBuffer buffer) {
+        this.buffer = buffer;
+      }
+
+      public char charAt(int index) {
+        return (char) (buffer.get(index) & 0xFF);              // anything but ASCII is not part of a date, and the codec rejects it
+      }
+
+      public int length() {
+        return buffer.limit();
+      }
+
+      public CharSequence subSequence(int start, int end) {
+        return decode(buffer, start, end);
+      }
+
+      @Override
+      public String toString() {
+        return decode(buffer, 0, buffer.limit());
+      }
+    }
+
+    @Override
+    protected Chunk compute() {
+      if (last - first > 1) {
+        int middle = (first + last) >>> 1;
+        ParseTask later = new ParseTask(channel, bounds, middle, last, cache);
+        later.fork();
+        Chunk chunk = new ParseTask(channel, bounds, first, middle, cache).compute();
+        chunk.append(later.join());
+        return chunk;
+      }
+      Chunk chunk = new Chunk();
+      try {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[first], bounds[last] - bounds[first]);
+        parseLines(buffer, bounds[first], chunk);
+      } catch (IOException e) {
+        chunk.error = e;
+      }
+      return chunk;
+    }
+
+    /** Parses every line in the buffer, which starts at offset in the file, into chunk. */
+    private void parseLines(ByteBuffer buffer, long offset, Chunk chunk) {
+      AsciiChars chars = new AsciiChars(buffer);
+      int limit = buffer.limit();
+      int lineStart = 0;
+      while (lineStart < limit) {
+        int lineEnd = lineStart;
+        while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+          lineEnd++;
+        }
+        chunk.lineCount++;
+        parseLine(buffer, chars, offset, lineStart, lineEnd, chunk);
+        lineStart = lineEnd + 1;
+      }
+    }
+
+    /** Parses the bytes from start to end (exclusive, without the newline) as one flashcard. */
+    private void parseLine(ByteBuffer buffer, AsciiChars chars, long offset, int start, int end, Chunk chunk) {
+      if (end > start && buffer.get(end - 1) == '\r') {     // tolerate Windows line endings
+        end--;
+      }
+      if (end == start) {                                    // blank lines (e.g. a trailing newline) are not cards
+        return;
+      }
+      int firstTab = -1;
+      int secondTab = -1;
+      int thirdTab = -1;
+      int tabs = 0;
+      for (int i = start; i < end; i++) {
+        if (buffer.get(i) == '\t') {
+          tabs++;
+          if (firstTab < 0) {
+            firstTab = i;
+          } else if (secondTab < 0) {
+            secondTab = i;
+          } else if (thirdTab < 0) {
+            thirdTab = i;
+          }
+        }
+      }
+      if (tabs != 2 && tabs != 3) {
+        chunk.report(chunk.lineCount, "expected 3 or 4 tab-separated fields but found " + (tabs + 1));
+        return;
+      }
+      long schedule = 0;
+      int backEnd = end;
+      if (tabs == 3) {                                       // the schedule of a card a policy has graded
+        try {
+          schedule = Long.parseLong(chars, thirdTab + 1, end, 10);
+        } catch (NumberFormatException e) {
+          chunk.report(chunk.lineCount, "'" + decode(buffer, thirdTab + 1, end) + "' is not a schedule (a whole number)");
+          return;
+        }
+        backEnd = thirdTab;
+      }
+      long dueKey = TimestampCodec.parseDueKey(chars, start, firstTab);
+      int dueNanos;
+      if (dueKey != TimestampCodec.NOT_PARSED) {
+        dueNanos = TimestampCodec.parseNanos(chars, start, firstTab);
+      } else {
+        String dueDate = decode(buffer, start, firstTab);      // an unusual date: the JDK reads it, or says what is wrong with it
+        try {
+          LocalDateTime parsed = TimestampCodec.parse(dueDate);
+          dueKey = Flashcard.toDueKey(parsed);
+          dueNanos = parsed.getNano() % 1_000_000;
+        } catch (DateTimeParseException e) {
+          chunk.report(chunk.lineCount, "'" + dueDate + "' is not a date in the format YYYY-MM-DDTHH:MM");
+          return;
+        }
+      }
+      Flashcard flashcard;
+      if (cache != null) {
+        flashcard = new LazyFlashcard(dueKey, dueNanos, cache, offset + start);         // the text stays in the file
+      } else {
+        flashcard = new Flashcard(dueKey, dueNanos, decode(buffer, firstTab + 1, secondTab), decode(buffer, secondTab + 1, backEnd));
+      }
+      flashcard.setSchedule(schedule);
+      chunk.cards.add(flashcard);
+    }
+
+    private static String decode(ByteBuffer buffer, int start, int end) {
+      byte[] bytes = new byte[end - start];
+      buffer.get(start, bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path deck = Files.createTempFile("deck", ".txt");
+    StringBuilder text = new StringBuilder();
+    List<String> expected = new ArrayList<String>();
+    for (int line = 1; line <= 60; line++) {
+      if (line % 13 == 0) {
+        text.append("2021-11-29T12:07\tno back\n");
+        expected.add("line " + line);
+      } else if (line % 17 == 0) {
+        text.append("not a date\tfront\tback\r\n");
+        expected.add("line " + line);
+      } else if (line % 19 == 0) {
+        text.append('\n');                                     // blank lines count as lines, but are not cards
+      } else {
+        text.append(String.format("2021-11-29T12:%02d\tfront %d\tback\n", line % 60, line));
+      }
+    }
+    text.append("2021-11-29T12:07\tthe last line, without a newline");
+    expected.add("line 61");
+    Files.write(deck, text.toString().getBytes(StandardCharsets.UTF_8));
+
+    // test for line numbers across chunk boundaries: every chunk size reports the same lines
+    StringBuilder wrong = new StringBuilder();
+    for (int chunkSize : new int[] {1, 7, 64, 500, DEFAULT_CHUNK_SIZE}) {
+      DeckReader reader = new DeckReader(ForkJoinPool.commonPool(), chunkSize);
+      int cards = reader.read(deck.toString()).size();
+      List<String> lines = new ArrayList<String>();
+      for (String problem : reader.getProblems()) {
+        lines.add(problem.substring(0, problem.indexOf(':')));
+      }
+      if (cards != 50 || !lines.equals(expected)) {
+        wrong.append(chunkSize).append(": ").append(cards).append(" cards, ").append(lines).append(' ');
+      }
+    }
+    System.err.println("This should print out " + expected + ": " + (wrong.length() == 0 ? expected : wrong));
+    Files.delete(deck);
+  }
+}
@@ -0,0 +1,185 @@
+package flashcards;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes flashcards to a tab-separated deck file that the FlashcardDisplayer
+ * constructor can load. A card with a schedule (see SchedulingPolicy) gets it as
+ * a fourth field, so a policy carries on where it left off after the deck is
+ * loaded again; other cards keep the three fields. The cards are streamed
+ * through a buffered writer into a temporary file next to the target, which is
+ * flushed to disk and then renamed over the target in one step, after which the
+ * directory is flushed too. A crash or power loss at any point leaves either the
+ * old file or the new one, and the new file keeps the permissions of the old one.
+ * @author Aris Karamustafic
+ */
+
+public class DeckWriter {
+
+  /**
+   * Writes every card the iterator returns, one per line, to outFilePath.
+   * Throws an IOException if the file could not be written, in which case the
+   * file at outFilePath (if any) has not been changed. A path ending in .fcdk
+   * is written in the binary format instead (see BinaryDeck).
+   */
+  public static void write(Iterator<Flashcard> flashcards, String outFilePath) throws IOException {
+    if (BinaryDeck.isBinaryPath(outFilePath)) {
+      BinaryDeck.write(flashcards, outFilePath);
+      return;
+    }
+    Path target = Paths.get(outFilePath).toAbsolutePath();
+    Path temp = createTemp(target);
+    try {
+      try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+        boolean first = true;
+        char[] dueDate = new char[TimestampCodec.MAX_LENGTH];    // every date is written through this, without making a String
+        while (flashcards.hasNext()) {
+          Flashcard flashcard = flashcards.next();
+          if (!first) {
+            writer.write('\n');                      // cards are separated by newlines, with none after the last one
+          }
+          first = false;
+          writer.write(dueDate, 0, TimestampCodec.format(flashcard.getDueKey(), flashcard.getDueNanos(), dueDate, 0));
+          String[] texts = texts(flashcard);
+          writer.write('\t');
+          writer.write(texts[0]);
+          writer.write('\t');
+          writer.write(texts[1]);
+          if (flashcard.getSchedule() != 0) {
+            writer.write('\t');
+            writer.write(Long.toString(flashcard.getSchedule()));
+          }
+        }
+      }
+      replace(temp, target);
+    } finally {
+      Files.deleteIfExists(temp);                    // only still there if something went wrong
+    }
+  }
+
+  /**
+   * Returns {front, back} of flashcard to be written. A LazyFlashcard's are read
+   * straight from its deck file, so a save does not push every card through the
+   * text cache.
+   */
+  static String[] texts(Flashcard flashcard) {
+    return (flashcard instanceof LazyFlashcard) ? ((LazyFlashcard) flashcard).readTexts() : flashcard.getTexts();
+  }
+
+  /**
+   * Creates an empty file next to target to write its new contents to. It gets
+   * the permissions of target if there is one, and otherwise the ones any new file
+   * gets (Files.createTempFile would make it readable by its owner only).
+   */
+  static Path createTemp(Path target) throws IOException {
+    while (true) {
+      Path temp = target.resolveSibling(target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+      try {
+        Files.createFile(temp);
+      } catch (FileAlreadyExistsException e) {
+        continue;                                      // another save picked the same name; pick again
+      }
+      PosixFileAttributeView attributes = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+      if (attributes != null && Files.exists(target)) {
+        attributes.setPermissions(Files.getPosixFilePermissions(target));
+      }
+      return temp;
+    }
+  }
+
+  /**
+   * Flushes temp to disk and renames it over target, atomically if the file system
+   * allows it, then flushes the directory so the rename itself survives a power loss.
+   */
+  static void replace(Path temp, Path target) throws IOException {
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+      channel.force(true);
+    }
+    try {
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+    try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+      directory.force(true);
+    } catch (IOException e) {
+      // some systems (e.g. Windows) can not open a directory; the rename is as durable as they make it
+    }
+  }
+
+  /** Returns the due date, texts and schedule of every card, one string per card. */
+  private static List<String> describe(List<Flashcard> flashcards) {
+    List<String> described = new ArrayList<String>();
+    for (Flashcard flashcard : flashcards) {
+      described.add(flashcard.getDueDate() + " " + flashcard.getFrontText() + "/" + flashcard.getBackText() + " " + flashcard.getSchedule());
+    }
+    return described;
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<Flashcard> cards = new ArrayList<Flashcard>();
+    cards.add(new Flashcard("2021-11-29T12:07", "plain", "card"));
+    cards.add(new Flashcard("2021-11-29T12:07:03", "with seconds", "Gr\u00fc\u00dfe, \u65e5\u672c"));
+    cards.add(new Flashcard("2021-11-29T12:07:03.123456789", "with nanos", "card"));
+    cards.add(new Flashcard("2021-11-30T00:00:00.5", "scheduled", "card"));
+    cards.get(3).setSchedule(Long.MAX_VALUE);
+    cards.add(new Flashcard("2021-12-01T08:15:59.000001", "plain", "card"));   // texts shared with the first card
+    cards.get(4).setSchedule(-42);
+    Path deck = Files.createTempFile("deck", ".txt");
+
+    // test for a text round trip: due dates, texts and schedules come back as written
+    DeckWriter.write(cards.iterator(), deck.toString());
+    DeckReader reader = new DeckReader();
+    System.err.println("This should print out " + describe(cards) + ": " + describe(reader.read(deck.toString())));
+
+    // test for writing lazily read cards again: their texts are read from the file they came from
+    CardTextCache cache = new CardTextCache(deck.toString(), 1024);
+    List<Flashcard> lazy = reader.readLazily(deck.toString(), cache);
+    Path copy = Files.createTempFile("deck", ".txt");
+    DeckWriter.write(lazy.iterator(), copy.toString());
+    System.err.println("This should print out true: " + Files.readAllLines(deck).equals(Files.readAllLines(copy)));
+    cache.close();
+    Files.delete(deck);
+    Files.delete(copy);
+
+    // test for a binary round trip: the same, except that due dates are kept to the millisecond
+    List<Flashcard> truncated = new ArrayList<Flashcard>();
+    for (Flashcard card : cards) {
+      Flashcard millis = new Flashcard(card.getDueKey(), 0, card.getFrontText(), card.getBackText());
+      millis.setSchedule(card.getSchedule());
+      truncated.add(millis);
+    }
+    Path binary = Files.createTempFile("deck", ".fcdk");
+    DeckWriter.write(cards.iterator(), binary.toString());
+    System.err.println("This should print out " + describe(truncated) + ": " + describe(reader.read(binary.toString())));
+
+    // test for a damaged string offset: the deck is rejected when it is loaded, not when a card is shown
+    byte[] bytes = Files.readAllBytes(binary);
+    int offsetsStart = 16 + 24 * cards.size();         // after the header and the version 2 card records
+    bytes[offsetsStart + 4] = 0x7f;                    // the end of string 0 is now far past the end of the file
+    Files.write(binary, bytes);
+    String result;
+    try {
+      result = reader.read(binary.toString()).get(0).getFrontText();
+    } catch (IOException e) {
+      result = e.getMessage().substring(binary.toString().length() + 1);
+    }
+    System.err.println("This should print out is a damaged binary deck (string 2): " + result);
+    Files.delete(binary);
+  }
+}
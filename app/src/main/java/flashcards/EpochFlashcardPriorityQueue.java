@@ -0,0 +1,256 @@
+package flashcards;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A ternary heap of flashcards that keeps every card's due time in parallel
+ * arrays next to the card references: its due key in a long[] and its nanoseconds
+ * past that millisecond in an int[] (see Flashcard.compareTo). Sifting compares
+ * only these primitives and never follows a card's pointer, even in a deck where
+ * many cards are due in the same millisecond. Uses the same
+ * layout as FlashcardPriorityQueue (slot 0 unused, parent of i is (i+1)/3).
+ * @author Aris Karamustafic
+ */
+
+public class EpochFlashcardPriorityQueue implements PriorityQueue<Flashcard> {
+
+    private Flashcard[] heap;                       // the cards, in heap order
+    private long[] dueKeys;                         // dueKeys[i] is heap[i].getDueKey()
+    private int[] dueNanos;                         // and dueNanos[i] is heap[i].getDueNanos()
+    private int lastIndex;                          // index of the last entry
+    private static final int DEFAULT_CAPACITY = 1;
+
+    public EpochFlashcardPriorityQueue() {
+      heap = new Flashcard[DEFAULT_CAPACITY + 1];   // slot 0 is unused, just like in FlashcardPriorityQueue
+      dueKeys = new long[DEFAULT_CAPACITY + 1];
+      dueNanos = new int[DEFAULT_CAPACITY + 1];
+      lastIndex = 0;
+    }
+
+    /** Adds all of the given flashcards, growing the arrays at most once. A large
+     * batch is put in order by rebuilding the heap bottom-up in linear time, a small
+     * one by sifting each new card up.
+     */
+    @Override
+    public void addAll(Collection<? extends Flashcard> flashcards) {
+      int count = flashcards.size();
+      int needed = lastIndex + count + 1;
+      if (needed > heap.length) {
+        resize((lastIndex == 0) ? needed : Math.max(needed, 2 * heap.length));
+      }
+      if ((long) count * (64 - Long.numberOfLeadingZeros(lastIndex + count)) < lastIndex + count) {   // a small batch: about count * log(size) work
+        for (Flashcard flashcard : flashcards) {
+          lastIndex++;
+          reheapForAdd(lastIndex, flashcard, flashcard.getDueKey(), flashcard.getDueNanos());
+        }
+        return;
+      }
+      for (Flashcard flashcard : flashcards) {
+        lastIndex++;
+        heap[lastIndex] = flashcard;
+        dueKeys[lastIndex] = flashcard.getDueKey();
+        dueNanos[lastIndex] = flashcard.getDueNanos();
+      }
+      for (int i = (lastIndex + 1) / 3; i >= 1; i--) {            // sift down every parent, last one first
+        reheapForPoll(i, heap[i], dueKeys[i], dueNanos[i]);
+      }
+    }
+
+    /** Adds the given item to the queue. */
+    public void add(Flashcard flashcard) {
+      ensureCapacity();
+      lastIndex++;
+      reheapForAdd(lastIndex, flashcard, flashcard.getDueKey(), flashcard.getDueNanos());
+    }
+
+    /** Moves the hole at index up until the card fits there, then puts the card in it.
+     * Parents are shifted down instead of swapped, so each level costs one key compare
+     * and three array writes.
+     */
+    private void reheapForAdd(int index, Flashcard flashcard, long dueKey, int nanos) {
+      int parentIndex = (index + 1) / 3;
+      while (parentIndex > 0 && isBefore(dueKey, nanos, dueKeys[parentIndex], dueNanos[parentIndex])) {   // the card is earlier than its parent, so the parent moves into the hole
+        heap[index] = heap[parentIndex];
+        dueKeys[index] = dueKeys[parentIndex];
+        dueNanos[index] = dueNanos[parentIndex];
+        index = parentIndex;
+        parentIndex = (index + 1) / 3;
+      }
+      heap[index] = flashcard;
+      dueKeys[index] = dueKey;
+      dueNanos[index] = nanos;
+    }
+
+    /** Removes the first item according to compareTo from the queue, and returns it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public Flashcard poll() {
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      Flashcard flashcard = heap[1];
+      Flashcard last = heap[lastIndex];               // the last card is sifted down from the root
+      long lastKey = dueKeys[lastIndex];
+      int lastNanos = dueNanos[lastIndex];
+      heap[lastIndex] = null;
+      lastIndex--;
+      if (lastIndex > 0) {
+        reheapForPoll(1, last, lastKey, lastNanos);
+      }
+      return flashcard;
+    }
+
+    /** Moves the hole at rootIndex down to the earliest child until the card fits there,
+     * then puts the card in it.
+     */
+    private void reheapForPoll(int rootIndex, Flashcard flashcard, long dueKey, int nanos) {
+      int leftChildIndex = rootIndex * 3 - 1;         // children of i are 3i-1, 3i and 3i+1
+      while (leftChildIndex <= lastIndex) {
+        int earliestChildIndex = leftChildIndex;
+        long earliestKey = dueKeys[leftChildIndex];
+        int earliestNanos = dueNanos[leftChildIndex];
+        int lastChildIndex = Math.min(leftChildIndex + 2, lastIndex);
+        for (int i = leftChildIndex + 1; i <= lastChildIndex; i++) {
+          if (isBefore(dueKeys[i], dueNanos[i], earliestKey, earliestNanos)) {
+            earliestChildIndex = i;
+            earliestKey = dueKeys[i];
+            earliestNanos = dueNanos[i];
+          }
+        }
+        if (!isBefore(earliestKey, earliestNanos, dueKey, nanos)) {   // no child is earlier than the card, so the hole is its place
+          break;
+        }
+        heap[rootIndex] = heap[earliestChildIndex];
+        dueKeys[rootIndex] = earliestKey;
+        dueNanos[rootIndex] = earliestNanos;
+        rootIndex = earliestChildIndex;
+        leftChildIndex = rootIndex * 3 - 1;
+      }
+      heap[rootIndex] = flashcard;
+      dueKeys[rootIndex] = dueKey;
+      dueNanos[rootIndex] = nanos;
+    }
+
+    /** Returns true if a card due at keyA and nanosA comes before one due at keyB and nanosB, as by compareTo. */
+    private static boolean isBefore(long keyA, int nanosA, long keyB, int nanosB) {
+      return keyA < keyB || (keyA == keyB && nanosA < nanosB);
+    }
+
+    /** Returns the first item according to compareTo in the queue, without removing it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public Flashcard peek() {
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      return heap[1];
+    }
+
+    /** Returns an iterator over the flashcards from earliest to latest due date,
+     * without changing the heap (a best-first walk, see FlashcardPriorityQueue).
+     * The queue must not be changed while iterating.
+     */
+    public Iterator<Flashcard> orderedIterator() {
+      java.util.PriorityQueue<Integer> frontier =
+          new java.util.PriorityQueue<Integer>((a, b) -> (dueKeys[a] != dueKeys[b]) ? Long.compare(dueKeys[a], dueKeys[b])
+              : Integer.compare(dueNanos[a], dueNanos[b]));
+      if (!isEmpty()) {
+        frontier.add(1);
+      }
+      return new Iterator<Flashcard>() {
+        public boolean hasNext() {
+          return !frontier.isEmpty();
+        }
+
+        public Flashcard next() {
+          if (frontier.isEmpty()) {
+            throw new NoSuchElementException();
+          }
+          int index = frontier.poll();
+          int lastChildIndex = Math.min(index * 3 + 1, lastIndex);
+          for (int child = index * 3 - 1; child <= lastChildIndex; child++) {
+            frontier.add(child);
+          }
+          return heap[index];
+        }
+      };
+    }
+
+    /** Returns true if the queue is empty. */
+    public boolean isEmpty() {
+      return lastIndex == 0;
+    }
+
+    /** Removes all items from the queue. */
+    public void clear() {
+      for (int i = 1; i <= lastIndex; i++) {
+        heap[i] = null;
+      }
+      lastIndex = 0;
+    }
+
+    /** If the arrays are full, it doubles their size. */
+    private void ensureCapacity() {
+      if (lastIndex + 1 == heap.length) {
+        resize(2 * heap.length);
+      }
+    }
+
+    /** Copies the cards and their due times into arrays of newSize. */
+    private void resize(int newSize) {
+      Flashcard[] tempHeap = new Flashcard[newSize];
+      long[] tempKeys = new long[newSize];
+      int[] tempNanos = new int[newSize];
+      System.arraycopy(heap, 1, tempHeap, 1, lastIndex);
+      System.arraycopy(dueKeys, 1, tempKeys, 1, lastIndex);
+      System.arraycopy(dueNanos, 1, tempNanos, 1, lastIndex);
+      heap = tempHeap;
+      dueKeys = tempKeys;
+      dueNanos = tempNanos;
+    }
+
+    public static void main(String[] args) {
+
+      EpochFlashcardPriorityQueue flashcards = new EpochFlashcardPriorityQueue();
+      flashcards.add(new Flashcard("2021-11-29T12:11", "Belgrade", "Serbia"));
+      flashcards.add(new Flashcard("2021-11-29T12:10", "Sarajevo", "Bosnia and Herzegovina"));
+      flashcards.add(new Flashcard("2021-11-29T12:08", "Zagreb", "Croatia"));
+      flashcards.add(new Flashcard("2021-11-29T12:12", "Ljubljana", "Slovenia"));
+      flashcards.add(new Flashcard("2021-11-29T12:07:00.000000500", "Skopje", "North Macedonia"));    // due in the same millisecond as Tirana, but later
+      flashcards.add(new Flashcard("2021-11-29T12:07", "Tirana", "Albania"));
+      flashcards.add(new Flashcard("2021-11-29T12:09:30", "Pristine", "Kosovo"));
+      flashcards.add(new Flashcard("2021-11-29T12:09", "Podgorica", "Montenegro"));
+
+      // test for poll() order
+      System.err.println("This should print out Tirana: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Skopje: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Zagreb: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Podgorica: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Pristine: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Sarajevo: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Belgrade: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Ljubljana: " + flashcards.peek().getFrontText());
+
+      // test for a deck where every card is due in the same millisecond
+      flashcards.clear();
+      java.util.List<Flashcard> clustered = new java.util.ArrayList<Flashcard>();
+      for (int i = 999; i >= 0; i--) {
+        clustered.add(new Flashcard(String.format("2021-11-29T12:07:00.000%06d", i), "Card " + i, ""));
+      }
+      flashcards.addAll(clustered);
+      boolean inOrder = true;
+      for (int i = 0; i < 1000; i++) {
+        inOrder &= flashcards.poll().getFrontText().equals("Card " + i);
+      }
+      System.err.println("This should print out true: " + inOrder);
+
+      // test for clear() and isEmpty()
+      flashcards.add(new Flashcard("2021-11-29T12:07", "Tirana", "Albania"));
+      flashcards.clear();
+      if (!flashcards.isEmpty()) {
+        System.err.println("The heap is supposed to be empty after calling clear(), but isEmpty() returns false.");
+      }
+    }
+}
@@ -0,0 +1,35 @@
+package flashcards;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Shows a card again a fixed time after it was graded: by default one day if it
+ * was right and one minute if it was wrong, however often it was right before.
+ * @author Aris Karamustafic
+ */
+
+public class FixedIntervalPolicy implements SchedulingPolicy {
+
+  private final Duration correctInterval;
+  private final Duration incorrectInterval;
+
+  public FixedIntervalPolicy() {
+    this(Duration.ofDays(1), Duration.ofMinutes(1));
+  }
+
+  public FixedIntervalPolicy(Duration correctInterval, Duration incorrectInterval) {
+    this.correctInterval = correctInterval;
+    this.incorrectInterval = incorrectInterval;
+  }
+
+  @Override
+  public void reschedule(Flashcard flashcard, boolean correct, LocalDateTime timeNow) {
+    flashcard.setDueDate(timeNow.plus(correct ? correctInterval : incorrectInterval));
+  }
+
+  @Override
+  public String toString() {
+    return "fixed";
+  }
+}
@@ -0,0 +1,178 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * @author Aris Karamustafic
+ */
+
+public class Flashcard implements Comparable<Flashcard> {
+
+    private String frontText;
+    private String backText;
+    private LocalDateTime dueDate;       // made from dueKey and dueNanos the first time it is asked for
+    private long dueKey;                 // dueDate as epoch-millis, so queues can order cards without touching the LocalDateTime
+    private int dueNanos;                // and the nanoseconds past that millisecond, so no precision is lost
+    private long schedule;               // what the SchedulingPolicy remembers about the card, 0 for a card it has not graded
+
+      /**
+     * Creates a new flashcard with the given dueDate, text for the front
+     * of the card (front), and text for the back of the card (back).
+     * dueDate must be in the format YYYY-MM-DDTHH:MM. For example,
+     * 2019-11-04T13:03 represents 1:03PM on November 4, 2019. It's
+     * okay if this method crashes if the date format is incorrect.
+     * In the format above, the time may be more precise (e.g., seconds
+     * or milliseconds may be included). TimestampCodec reads it straight into
+     * the due key, and hands anything unusual to LocalDateTime.parse.
+     */
+
+    public Flashcard(String dueDate, String front, String back) {
+      frontText = front;
+      backText = back;
+      dueKey = TimestampCodec.parseDueKey(dueDate, 0, dueDate.length());      // turns the dueDate from a String object to a number
+      if (dueKey == TimestampCodec.NOT_PARSED) {
+        setDueDate(TimestampCodec.parse(dueDate));                            // throws a DateTimeParseException if it is not a date
+      } else {
+        dueNanos = TimestampCodec.parseNanos(dueDate, 0, dueDate.length());
+      }
+    }
+
+    /**
+     * Creates a new flashcard due at dueKey (see toDueKey) plus dueNanos
+     * nanoseconds (0 to 999999), without making a LocalDateTime.
+     */
+    public Flashcard(long dueKey, int dueNanos, String front, String back) {
+      frontText = front;
+      backText = back;
+      this.dueKey = dueKey;
+      this.dueNanos = dueNanos;
+    }
+
+    /**
+     * Creates a new flashcard with an already parsed due date.
+     */
+    public Flashcard(LocalDateTime dueDate, String front, String back) {
+      frontText = front;
+      backText = back;
+      setDueDate(dueDate);
+    }
+
+    /**
+     * Converts a key made by toDueKey back to the due date it stands for.
+     */
+    public static LocalDateTime fromDueKey(long dueKey) {
+      return LocalDateTime.ofEpochSecond(Math.floorDiv(dueKey, 1000), Math.floorMod(dueKey, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Converts a due date to the primitive key used for ordering: milliseconds
+     * since 1970-01-01T00:00, treating the local date-time as if it were UTC.
+     * Two cards compare the same way by key as by date, down to the millisecond.
+     */
+    public static long toDueKey(LocalDateTime dueDate) {
+      return dueDate.toEpochSecond(ZoneOffset.UTC) * 1000 + dueDate.getNano() / 1_000_000;
+    }
+
+    /**
+     * Gets the text for the front of this flashcard.
+     */
+    public String getFrontText() {
+      return frontText;
+    }
+
+    /**
+     * Gets the text for the Back of this flashcard.
+     */
+    public String getBackText() {
+      return backText;
+    }
+
+    /**
+     * Gets {front text, back text} of this flashcard, e.g. to compare or write
+     * both. A LazyFlashcard reads them with one lookup in its text cache.
+     */
+    public String[] getTexts() {
+      return new String[] {getFrontText(), getBackText()};
+    }
+
+    /**
+     * Gets the time when this flashcard is next due.
+     */
+    public LocalDateTime getDueDate() {
+      if (dueDate == null) {
+        dueDate = TimestampCodec.toLocalDateTime(dueKey, dueNanos);
+      }
+      return dueDate;
+    }
+
+    /**
+     * Changes the time when this flashcard is next due, so that a graded card can be
+     * put back in a queue without making a new Flashcard. A card must not be changed
+     * while it is in a queue, except through IndexedFlashcardPriorityQueue.reschedule.
+     */
+    public void setDueDate(LocalDateTime dueDate) {
+      this.dueDate = dueDate;
+      dueKey = toDueKey(dueDate);
+      dueNanos = dueDate.getNano() % 1_000_000;
+    }
+
+    /**
+     * Gets the time when this flashcard is next due as an epoch-millis key
+     * (see toDueKey).
+     */
+    public long getDueKey() {
+      return dueKey;
+    }
+
+    /**
+     * Gets the nanoseconds past the millisecond of getDueKey (0 to 999999).
+     */
+    public int getDueNanos() {
+      return dueNanos;
+    }
+
+    /**
+     * Appends the due date to builder as LocalDateTime.toString would, without
+     * making a LocalDateTime or a String.
+     */
+    public StringBuilder appendDueDate(StringBuilder builder) {
+      return TimestampCodec.append(builder, dueKey, dueNanos);
+    }
+
+    /**
+     * Gets what the SchedulingPolicy that grades this card remembers about it, e.g.
+     * its Leitner box. A card that has not been graded yet has 0. Decks and the
+     * review journal keep it as an optional last field (see DeckWriter).
+     */
+    public long getSchedule() {
+      return schedule;
+    }
+
+    /**
+     * Changes what the SchedulingPolicy remembers about this card.
+     */
+    public void setSchedule(long schedule) {
+      this.schedule = schedule;
+    }
+
+    /**
+     * Returns a string displayinf flashcard's due date, front and back text.
+     */
+    @Override
+    public String toString() {
+      String string = "DueDate: " + getDueDate() + " front: " + getFrontText() + " back: " + getBackText();
+      return string;
+    }
+
+    /**
+     * Compares due dates of two flashcards.
+     */
+    @Override
+    public int compareTo(Flashcard otherFlashcard) {
+      int byKey = Long.compare(dueKey, otherFlashcard.dueKey);          // the same order as comparing the dates
+      return (byKey != 0) ? byKey : Integer.compare(dueNanos, otherFlashcard.dueNanos);
+    }
+
+
+}
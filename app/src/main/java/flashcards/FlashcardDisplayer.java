@@ -0,0 +1,468 @@
+package flashcards;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * @author Aris Karamustafic
+ */
+
+public class FlashcardDisplayer {
+
+  private PriorityQueue<Flashcard> flashcards;                 // each displayer has its own deck
+  private static final int PAGE_SIZE = 256;            // how many due cards the quiz takes out of the heap at a time
+  private ReviewJournal journal;                       // every graded card is logged here, so progress survives without a save
+  private static final boolean JOURNAL_ENABLED = !"false".equals(System.getProperty("flashcards.journal"));    // unless run with -Dflashcards.journal=false
+  private Clock clock = Clock.systemDefaultZone();     // what "now" is for the quiz
+  private SchedulingPolicy policy = new FixedIntervalPolicy();   // when a graded card is due again
+  private CardTextCache textCache;                     // where the card texts are read from, if they are not in memory
+  private static final LatencyHistogram LOAD_LATENCY = new LatencyHistogram("load");      // these are only filled in when
+  private static final LatencyHistogram SAVE_LATENCY = new LatencyHistogram("save");      // Metrics.ENABLED, and the "stats"
+  private static final LatencyHistogram REVIEW_LATENCY = new LatencyHistogram("review");  // command prints them.
+
+  static {
+    Metrics.register("Latency", LOAD_LATENCY.getName(), LOAD_LATENCY);
+    Metrics.register("Latency", SAVE_LATENCY.getName(), SAVE_LATENCY);
+    Metrics.register("Latency", REVIEW_LATENCY.getName(), REVIEW_LATENCY);
+  }
+    /**
+   * Creates a flashcard displayer with the flashcards in file.
+   * File has one flashcard per line. On each line, the date the flashcard
+   * should next be shown is first (format: YYYY-MM-DDTHH-MM), followed by a tab,
+   * followed by the text for the front of the flashcard, followed by another tab.
+   * followed by the text for the back of the flashcard. You can assume that the
+   * front/back text does not itself contain tabs. (I.e., a properly formatted file
+   * has exactly 2 tabs per line.) A card that a scheduling policy has graded
+   * has a third tab and its schedule as a whole number after it.
+   * The time may be more precise (e.g., seconds may be included). The parse method
+   * in LocalDateTime can deal with this situation without any changes to your code.
+   */
+  public FlashcardDisplayer(String filePath) {
+    this(filePath, new FlashcardPriorityQueue());
+  }
+
+  /**
+   * Creates a flashcard displayer with the flashcards in file, keeping them in
+   * the given (empty) queue. Any PriorityQueue<Flashcard> works, e.g. an
+   * EpochFlashcardPriorityQueue for very large decks.
+   */
+  public FlashcardDisplayer(String filePath, PriorityQueue<Flashcard> queue) {
+    load(filePath, queue, 0);
+  }
+
+  /**
+   * Creates a flashcard displayer that keeps only the due date and the position
+   * in the file of each card, and reads the text of a card from the file when it
+   * is displayed or saved, keeping the most recently used texts in a cache of
+   * about textCacheBytes (see CardTextCache). This is for decks whose text does
+   * not fit in memory. A textCacheBytes of 0 loads the text as usual.
+   */
+  public FlashcardDisplayer(String filePath, PriorityQueue<Flashcard> queue, long textCacheBytes) {
+    load(filePath, queue, textCacheBytes);
+  }
+
+  private void load(String filePath, PriorityQueue<Flashcard> queue, long textCacheBytes) {
+    flashcards = queue;
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+    DeckReader deckReader = new DeckReader();          // reads and parses the file in parallel chunks
+    List<String> journalProblems = new ArrayList<String>();
+    try {
+      List<Flashcard> deck;
+      if (textCacheBytes > 0) {
+        textCache = new CardTextCache(filePath, textCacheBytes);
+        deck = deckReader.readLazily(filePath, textCache);
+        Metrics.register("TextCache", "flashcards", textCache);
+      } else {
+        deck = deckReader.read(filePath);
+      }
+      journalProblems = ReviewJournal.replay(filePath, deck);    // reviews logged since the file was last written are applied on top of it,
+      flashcards.addAll(deck);                         // and the heap is built from the whole deck at once.
+      if (Metrics.ENABLED) {
+        LOAD_LATENCY.recordSince(start);
+      }
+    } catch (IOException e) {
+      System.out.println("Error reading the file " + filePath);
+      System.out.println(e.getMessage());                                       // if file is not found or can not be read, a helpful error
+      System.exit(1);                                                           // message is shown and the program ends
+    }
+    if (Metrics.ENABLED && flashcards instanceof FlashcardPriorityQueue) {
+      Metrics.register("Heap", "flashcards", ((FlashcardPriorityQueue) flashcards).getStats());
+    }
+    for (String problem : deckReader.getProblems()) {
+      System.out.println("Skipped " + problem);                                 // badly formatted lines are skipped, not fatal
+    }
+    for (String problem : journalProblems) {
+      System.out.println("Skipped " + problem);                                 // and so are journal records that can not be read
+    }
+    if (!JOURNAL_ENABLED) {
+      return;                                                                   // grades are only kept by saving, e.g. in a load benchmark
+    }
+    try {
+      journal = new ReviewJournal(filePath);
+    } catch (IOException e) {
+      System.out.println("Could not open the review journal, progress will only be kept by saving: " + e.getMessage());
+    }
+  }
+  /**
+   * Creates a flashcard displayer with the flashcards of several deck files, which
+   * are merged lazily (see MergedDeckQueue); the cards that have to be loaded are
+   * kept in the given (empty) queue. A single file is loaded as usual. Reviews are
+   * only journaled for a single file, since a graded card could belong to any of
+   * the files; with several files, progress is kept by saving.
+   */
+  public FlashcardDisplayer(List<String> filePaths, PriorityQueue<Flashcard> queue) {
+    this(filePaths, queue, 0);
+  }
+
+  /**
+   * Like FlashcardDisplayer(filePaths, queue), but a single file is loaded with
+   * its text left in the file as in FlashcardDisplayer(filePath, queue,
+   * textCacheBytes). With several files, textCacheBytes is not used: the files
+   * that are merged lazily only hold one card each in memory anyway.
+   */
+  public FlashcardDisplayer(List<String> filePaths, PriorityQueue<Flashcard> queue, long textCacheBytes) {
+    if (filePaths.size() == 1) {
+      load(filePaths.get(0), queue, textCacheBytes);
+      return;
+    }
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+    try {
+      MergedDeckQueue merged = new MergedDeckQueue(filePaths, queue);
+      flashcards = merged;
+      if (Metrics.ENABLED) {
+        LOAD_LATENCY.recordSince(start);
+      }
+      for (String problem : merged.getProblems()) {
+        System.out.println("Skipped " + problem);
+      }
+    } catch (IOException e) {
+      System.out.println("Error reading the files " + filePaths);
+      System.out.println(e.getMessage());
+      System.exit(1);
+    }
+    if (Metrics.ENABLED && queue instanceof FlashcardPriorityQueue) {
+      Metrics.register("Heap", "flashcards", ((FlashcardPriorityQueue) queue).getStats());
+    }
+  }
+
+  /**
+   * Writes out all flashcards to a file so that they can be loaded
+   * by the FlashcardDisplayer(String filePath) constructor. Returns true
+   * if the file could be written. The FlashcardDisplayer should still
+   * have all of the same flashcards after this method is called as it
+   * did before the method was called. However, flashcards with the same
+   * exact same next display date may later be displayed in a different order.
+   * Saving to the deck's own file empties its review journal, since the file
+   * then has every review in it.
+   */
+  public boolean saveFlashcards(String outFilePath) {
+    boolean canWrite = true;                                     // boolean variable that returns true if the file could
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;        // be written, or false otherwise.
+    try {
+      if (journal != null && journal.isFor(outFilePath)) {
+        long save = journal.startSave();                             // the journal and any compaction of it wait for the new deck,
+        journal.finishSave(save, flashcards.orderedIterator());      // and are then folded into it.
+      } else {
+        DeckWriter.write(flashcards.orderedIterator(), outFilePath);   // streams the cards in order without taking them out of the heap
+      }
+      if (Metrics.ENABLED) {
+        SAVE_LATENCY.recordSince(start);
+      }
+    } catch (IOException e) {
+      canWrite = false;                             // canWrite is false if the file could not be written.
+      System.out.println(e.getMessage());           // if the file could not be written, a helpful message is displayed.
+    }
+    return canWrite;
+  }
+
+  /**
+   * Runs a session with the commands and answers from answers: "quiz" shows the
+   * cards that are due, "save" writes the deck to a file, "stats" prints the
+   * metrics and "exit" ends the session. The session is a loop, so it can run for
+   * any number of commands; it also ends when answers runs out of input. The
+   * journal is closed at the end.
+   */
+  public void run(AnswerSource answers) {
+    String commandWord = answers.nextCommand();
+    while (commandWord != null && !commandWord.equals("exit")) {
+      if (commandWord.equals("quiz")) {                    // if the user types "quiz", the quiz starts with any flashcards that are due at that time.
+        if (!displayFlashcards(answers)) {
+          break;                                           // the input ended in the middle of the quiz
+        }
+      } else if (commandWord.equals("save")) {             // if the user types "save", the flashcards are saved to a file with name of their choice
+        saveCommand(answers);
+      } else if (commandWord.equals("stats")) {            // if the user types "stats", the counters and timings are printed
+        System.out.println(statsReport());
+      }
+      commandWord = answers.nextCommand();                 // after each command, the user chooses what the program is going to do next
+    }
+    close();                                               // commits the last reviews before the session ends
+  }
+
+  /**
+   * Displays any flashcards that are currently due to the user at the console.
+   */
+  public void displayFlashcards() {
+    displayFlashcards(new ConsoleAnswerSource());
+  }
+
+  /**
+   * Displays any flashcards that are currently due, and asks answers whether
+   * each card was correct. The card is then added back to the deck with a new
+   * due date from the scheduling policy; with the default FixedIntervalPolicy
+   * that is one day later than the current date and time if the card was correct,
+   * and one minute later if it was incorrect. Returns false
+   * if answers ran out before every due card was graded; the cards that were not
+   * graded stay in the deck unchanged. With an IndexedFlashcardPriorityQueue each
+   * card is graded where it is in the heap instead of being taken out and added back.
+   */
+  public boolean displayFlashcards(AnswerSource answers) {
+    LocalDateTime timeNow = LocalDateTime.now(clock);   // this is the time at the moment given as a LocalDateTime variable.
+    Flashcard dueNow = new Flashcard(timeNow, "", "");   // a card due right now: every card that comes before it is due.
+    if (flashcards instanceof IndexedFlashcardPriorityQueue) {
+      return displayFlashcardsInPlace((IndexedFlashcardPriorityQueue) flashcards, answers, timeNow, dueNow);
+    }
+    ArrayList<Flashcard> dueFlashcards = new ArrayList<Flashcard>();
+    ArrayList<Flashcard> gradedFlashcards = new ArrayList<Flashcard>();
+    while (flashcards.drainBefore(dueNow, dueFlashcards, PAGE_SIZE) > 0) {                    // the program takes out a page of the flashcards that are
+      for (int i = 0; i < dueFlashcards.size(); i++) {                                       // currently due, starting from the earliest onwards, and
+        Flashcard flashcard = dueFlashcards.get(i);                                           // displays them one by one.
+        answers.show(flashcard);
+        int correctOrNot = answers.grade(flashcard);
+        if (correctOrNot == AnswerSource.NO_ANSWER) {
+          flashcards.addAll(gradedFlashcards);                                                // nothing is lost when the input ends: graded cards go back
+          flashcards.addAll(dueFlashcards.subList(i, dueFlashcards.size()));                  // with their new dates, the rest as they were.
+          return false;
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;                                 // review latency is the bookkeeping after the grade, not the user's thinking time
+        LocalDateTime oldDueDate = flashcard.getDueDate();                                    // the card is added back into the heap with a dueDate
+        policy.reschedule(flashcard, correctOrNot == AnswerSource.CORRECT, timeNow);          // that the policy picks, e.g. 24 hours or 1 minute from now.
+        gradedFlashcards.add(flashcard);                                                      // the same card goes back, only its due date changes.
+        logReview(flashcard, oldDueDate);
+        if (Metrics.ENABLED) {
+          REVIEW_LATENCY.recordSince(start);
+        }
+      }
+      flashcards.addAll(gradedFlashcards);              // graded cards go back in together; they are due after now, so the quiz
+      dueFlashcards.clear();                            // will not show them again before it ends.
+      gradedFlashcards.clear();
+    }
+    return true;
+  }
+
+  /** Displays the due cards as displayFlashcards does, moving each graded card to its new place with one sift. */
+  private boolean displayFlashcardsInPlace(IndexedFlashcardPriorityQueue indexed, AnswerSource answers, LocalDateTime timeNow, Flashcard dueNow) {
+    while (!indexed.isEmpty() && indexed.peek().compareTo(dueNow) < 0) {                     // a graded card is due after now, so once it has moved down
+      int handle = indexed.peekHandle();                                                      // the earliest card is the next one that is due.
+      Flashcard flashcard = indexed.get(handle);
+      answers.show(flashcard);
+      int correctOrNot = answers.grade(flashcard);
+      if (correctOrNot == AnswerSource.NO_ANSWER) {
+        return false;                                                                         // the card was not changed, so it stays where it is.
+      }
+      long start = Metrics.ENABLED ? System.nanoTime() : 0;
+      LocalDateTime oldDueDate = flashcard.getDueDate();
+      indexed.reschedule(handle, policy, correctOrNot == AnswerSource.CORRECT, timeNow);
+      logReview(flashcard, oldDueDate);
+      if (Metrics.ENABLED) {
+        REVIEW_LATENCY.recordSince(start);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sets the clock that decides which cards are due and when graded cards are due
+   * again, e.g. a fixed clock to replay a recorded session.
+   */
+  public void setClock(Clock clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * Sets the policy that decides when graded cards are due again (by default a
+   * FixedIntervalPolicy: one day if correct, one minute if not).
+   */
+  public void setSchedulingPolicy(SchedulingPolicy policy) {
+    this.policy = policy;
+  }
+
+  /**
+   * Sets how many reviews are committed to the journal with one fsync (16 by
+   * default), e.g. more to replay a long recorded session, or 1 to keep every
+   * review through a crash.
+   */
+  public void setJournalSyncEvery(int syncEvery) {
+    if (journal != null) {
+      journal.setSyncEvery(syncEvery);
+    }
+  }
+
+  private void logReview(Flashcard flashcard, LocalDateTime oldDueDate) {
+    if (journal != null) {
+      try {
+        journal.append(flashcard, oldDueDate);
+      } catch (IOException e) {
+        System.out.println("Could not log the review: " + e.getMessage());
+      }
+    }
+  }
+
+  private void saveCommand(AnswerSource answers) {
+    String fileName = answers.nextFileName(false);                 // this allows user to input the name of the file to save flashcards
+    while (fileName != null && !saveFlashcards(fileName)) {        // in, and if the file could not be made under that name, it asks
+      fileName = answers.nextFileName(true);                       // the user for a different file name.
+    }
+  }
+
+  /**
+   * Returns the counters of the queue and the load, save and review timings as
+   * text, one line each. They are only kept when the program is run with
+   * -Dflashcards.metrics=true; they can also be read over JMX (e.g. with jconsole)
+   * under flashcards:type=Heap and flashcards:type=Latency.
+   */
+  public String statsReport() {
+    if (!Metrics.ENABLED) {
+      String off = "Metrics are off. Run the program with -Dflashcards.metrics=true to collect them.";
+      return (textCache != null) ? textCache + System.lineSeparator() + off : off;     // the text cache always counts its hits
+    }
+    StringBuilder report = new StringBuilder();
+    if (flashcards instanceof FlashcardPriorityQueue) {
+      report.append(((FlashcardPriorityQueue) flashcards).getStats()).append(System.lineSeparator());
+    }
+    if (textCache != null) {
+      report.append(textCache).append(System.lineSeparator());
+    }
+    report.append(LOAD_LATENCY).append(System.lineSeparator());
+    report.append(SAVE_LATENCY).append(System.lineSeparator());
+    report.append(REVIEW_LATENCY);
+    return report.toString();
+  }
+
+  /**
+   * Commits any reviews that have not been written to the journal yet and
+   * stops its background threads. If the card texts are read from the deck file,
+   * the file is closed too, so the cards can not be displayed or saved any more.
+   */
+  public void close() {
+    if (journal != null) {
+      try {
+        journal.close();
+      } catch (IOException e) {
+        System.out.println("Could not log the last reviews: " + e.getMessage());
+      }
+      journal = null;
+    }
+    if (textCache != null) {
+      try {
+        textCache.close();
+      } catch (IOException e) {
+        System.out.println(e.getMessage());
+      }
+      textCache = null;
+    }
+  }
+
+  public static void main(String[] args) {
+    List<String> deckPaths = new ArrayList<String>();            // this program takes one or more deck files and, optionally,
+    String answersPath = null;                                   // a file of recorded answers after --answers, and the size in
+    long textCacheBytes = 0;                                     // megabytes of the card text cache after --text-cache, and
+    SchedulingPolicy policy = new FixedIntervalPolicy();         // the scheduling policy after --policy, the reviews per journal
+    int syncEvery = ReviewJournal.DEFAULT_SYNC_EVERY;            // fsync after --sync-every, the time the quiz is taken at
+    LocalDateTime clockTime = null;                              // after --clock (by default, the time it really is) and the
+    boolean indexed = false;                                     // queue after --queue.
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--answers") && i + 1 < args.length) {
+        answersPath = args[i + 1];
+        i++;
+      } else if (args[i].equals("--text-cache") && i + 1 < args.length) {
+        try {
+          textCacheBytes = Long.parseLong(args[i + 1]) * 1024 * 1024;
+        } catch (NumberFormatException e) {
+          System.err.println("The text cache size must be a number of megabytes, not " + args[i + 1]);
+          return;
+        }
+        i++;
+      } else if (args[i].equals("--policy") && i + 1 < args.length) {
+        try {
+          policy = SchedulingPolicy.forName(args[i + 1]);
+        } catch (IllegalArgumentException e) {
+          System.err.println(e.getMessage());
+          return;
+        }
+        i++;
+      } else if (args[i].equals("--sync-every") && i + 1 < args.length) {
+        try {
+          syncEvery = Integer.parseInt(args[i + 1]);
+        } catch (NumberFormatException e) {
+          System.err.println("--sync-every must be a number of reviews, not " + args[i + 1]);
+          return;
+        }
+        if (syncEvery < 1) {
+          System.err.println("--sync-every must be at least 1");
+          return;
+        }
+        i++;
+      } else if (args[i].equals("--queue") && i + 1 < args.length) {
+        if (!args[i + 1].equals("heap") && !args[i + 1].equals("indexed")) {
+          System.err.println("--queue must be heap or indexed, not " + args[i + 1]);
+          return;
+        }
+        indexed = args[i + 1].equals("indexed");
+        i++;
+      } else if (args[i].equals("--clock") && i + 1 < args.length) {
+        try {
+          clockTime = TimestampCodec.parse(args[i + 1]);
+        } catch (DateTimeParseException e) {
+          System.err.println("The clock must be a date in the format YYYY-MM-DDTHH:MM, not " + args[i + 1]);
+          return;
+        }
+        i++;
+      } else {
+        deckPaths.add(args[i]);
+      }
+    }
+    if (deckPaths.isEmpty()) {
+      System.err.println("Usage: FlashcardDisplayer deck.txt [more decks...] [--answers answers.txt] [--text-cache megabytes] [--policy fixed|leitner|sm2]"
+          + " [--sync-every reviews] [--clock YYYY-MM-DDTHH:MM] [--queue heap|indexed]");
+      return;
+    }
+    PriorityQueue<Flashcard> queue = indexed ? new IndexedFlashcardPriorityQueue() : new FlashcardPriorityQueue();
+    FlashcardDisplayer flashcardDisplayer = new FlashcardDisplayer(deckPaths, queue, textCacheBytes);
+    flashcardDisplayer.setSchedulingPolicy(policy);
+    flashcardDisplayer.setJournalSyncEvery(syncEvery);
+    if (clockTime != null) {                                     // a fixed time makes a replay give the same due dates on every run
+      ZoneId zone = ZoneId.systemDefault();
+      flashcardDisplayer.setClock(Clock.fixed(clockTime.atZone(zone).toInstant(), zone));
+    }
+    if (answersPath != null) {
+      ScriptedAnswerSource answers;
+      try {
+        answers = ScriptedAnswerSource.fromFile(answersPath);
+      } catch (IOException e) {
+        System.err.println("Error reading the answers " + answersPath + ": " + e.getMessage());
+        flashcardDisplayer.close();
+        return;
+      }
+      long start = System.nanoTime();
+      flashcardDisplayer.run(answers);                                                                        // replays the answers without asking anything
+      System.out.println("Replayed " + answers.getGrades() + " answers in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+      answers.finish();
+      for (String problem : answers.getProblems()) {
+        System.out.println("Skipped " + answersPath + " " + problem);                                        // lines that were not used are reported, not dropped
+      }
+      return;
+    }
+    System.out.println("Time to practice flashcards! The computer will display your flashcards,");          // this greets the user with a welcome message before
+    System.out.println("you generate the response in your head, and then see if you got it right.");        // asking them what they want the program to do next.
+    System.out.println("The computer will show you cards that you miss more often than those you know!");
+    flashcardDisplayer.run(new ConsoleAnswerSource());
+    System.out.println("Goodbye!");
+  }
+
+}
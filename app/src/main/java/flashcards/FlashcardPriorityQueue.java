@@ -0,0 +1,430 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A d-ary heap of flashcards: every node has up to arity children, and the arity
+ * is chosen when the queue is made (2, 3, 4 and 8 are the sensible choices). The
+ * heap starts at index 0, so the children of node i are arity*i+1 up to arity*i+arity
+ * and its parent is (i-1)/arity. Sifting is iterative and moves a hole instead of
+ * swapping: cards in the way are shifted one level, and the moving card is written
+ * once, where it ends up.
+ * @author Aris Karamustafic
+ */
+
+ public class FlashcardPriorityQueue implements PriorityQueue<Flashcard> {
+
+    /** The arity used by the constructors that do not take one; see HeapArityBenchmark. */
+    public static final int DEFAULT_ARITY = 4;
+    private static final int DEFAULT_CAPACITY = 2;
+
+    private final int arity;                        // number of children per node
+    private Flashcard[] heap;                       // heap[0] is the earliest flashcard
+    private int size;                               // number of flashcards, heap[size] is the first free slot
+    private final HeapStats stats;                  // null unless Metrics.ENABLED
+
+    public FlashcardPriorityQueue() {
+      this(DEFAULT_ARITY);
+    }
+
+    /** Creates an empty queue whose nodes have the given number of children (at least 2). */
+    public FlashcardPriorityQueue(int arity) {
+      if (arity < 2) {
+        throw new IllegalArgumentException("A heap needs an arity of at least 2, not " + arity);
+      }
+      this.arity = arity;
+      heap = new Flashcard[DEFAULT_CAPACITY];
+      size = 0;
+      stats = Metrics.ENABLED ? new HeapStats(this) : null;
+    }
+
+    /** Creates a queue holding all of the given flashcards. The array is sized once
+     * and the heap is built bottom-up, which takes linear time.
+     */
+    public FlashcardPriorityQueue(Collection<? extends Flashcard> flashcards) {
+      this(flashcards, DEFAULT_ARITY);
+    }
+
+    /** Creates a queue with the given arity holding all of the given flashcards. */
+    public FlashcardPriorityQueue(Collection<? extends Flashcard> flashcards, int arity) {
+      this(arity);
+      heap = new Flashcard[Math.max(flashcards.size(), DEFAULT_CAPACITY)];
+      addAll(flashcards);
+    }
+
+    /** Returns the number of children per node. */
+    public int getArity() {
+      return arity;
+    }
+
+    /** Returns the number of flashcards in the queue. */
+    public int size() {
+      return size;
+    }
+
+    /** Returns the length of the array that holds the heap. */
+    int capacity() {
+      return heap.length;
+    }
+
+    /** Returns the counters of this queue, or null if metrics are off (see Metrics). */
+    public HeapStats getStats() {
+      return stats;
+    }
+
+    /** Adds all of the given flashcards to the queue. They are appended to the end
+     * of the array, which grows at most once. A large batch is then put in order by
+     * rebuilding the whole heap bottom-up in O(size) time; a batch that is small
+     * compared to the heap (e.g. a page of graded cards) is sifted up card by card,
+     * which is cheaper than touching every node.
+     */
+    @Override
+    public void addAll(Collection<? extends Flashcard> flashcards) {
+      int count = flashcards.size();
+      int needed = size + count;
+      if (needed > heap.length) {                                  // grow exactly once
+        int newSize = (size == 0) ? needed : Math.max(needed, 2 * heap.length);
+        Flashcard[] tempHeap = new Flashcard[newSize];
+        System.arraycopy(heap, 0, tempHeap, 0, size);
+        heap = tempHeap;
+        if (Metrics.ENABLED) {
+          stats.resizes++;
+        }
+      }
+      if (Metrics.ENABLED) {
+        stats.adds += count;
+      }
+      if ((long) count * depth(needed) < needed) {
+        for (Flashcard flashcard : flashcards) {
+          reheapForAdd(size, flashcard);
+          size++;
+        }
+      } else {
+        for (Flashcard flashcard : flashcards) {
+          heap[size] = flashcard;
+          size++;
+        }
+        heapify();
+      }
+    }
+
+    /** Restores the heap order of the whole array by sifting down every node that has
+     * children, starting from the last parent and moving up to the root.
+     */
+    private void heapify() {
+      for (int i = (size - 2) / arity; i >= 0 && size > 1; i--) {   // (size-2)/arity is the parent of the last node
+        reheapForPoll(i, heap[i]);
+      }
+    }
+
+    /** Returns the number of levels in a heap of the given size. */
+    private int depth(int size) {
+      int levels = 0;
+      for (long nodes = 0, levelSize = 1; nodes < size; levelSize *= arity) {
+        nodes += levelSize;
+        levels++;
+      }
+      return levels;
+    }
+
+    /** Removes the earliest flashcards, up to maxItems of them, and adds them to sink
+     * in order. Returns how many were removed.
+     */
+    @Override
+    public int drainTo(Collection<? super Flashcard> sink, int maxItems) {
+      return drain(null, sink, maxItems);
+    }
+
+    /** Removes the flashcards that are due before bound, up to maxItems of them, and
+     * adds them to sink in order. Returns how many were removed.
+     */
+    @Override
+    public int drainBefore(Flashcard bound, Collection<? super Flashcard> sink, int maxItems) {
+      return drain(bound, sink, maxItems);
+    }
+
+    /** Removes and returns the flashcards that are due before instant, up to limit of
+     * them, earliest first.
+     */
+    public List<Flashcard> pollAllDueBefore(LocalDateTime instant, int limit) {
+      List<Flashcard> due = new ArrayList<Flashcard>();
+      drain(new Flashcard(instant, "", ""), due, limit);
+      return due;
+    }
+
+    /** Finds the cards to remove with one best-first walk over the part of the heap that
+     * comes before bound (all of it if bound is null). If there are only a few of them
+     * they are polled one at a time; if taking them out one by one would cost more than
+     * touching the whole heap, they are cut out of the array in one pass instead and
+     * the rest is rebuilt with heapify.
+     */
+    private int drain(Flashcard bound, Collection<? super Flashcard> sink, int maxItems) {
+      if (maxItems <= 0 || isEmpty() || (bound != null && heap[0].compareTo(bound) >= 0)) {
+        return 0;
+      }
+      java.util.PriorityQueue<Integer> frontier =
+          new java.util.PriorityQueue<Integer>((a, b) -> heap[a].compareTo(heap[b]));
+      int[] found = new int[Math.min(maxItems, size)];                           // indices of the cards to remove, in order
+      int count = 0;
+      frontier.add(0);
+      while (count < found.length && !frontier.isEmpty()) {
+        int index = frontier.poll();
+        found[count] = index;
+        count++;
+        int lastChildIndex = Math.min(arity * index + arity, size - 1);
+        for (int child = arity * index + 1; child <= lastChildIndex; child++) {
+          if (bound == null || heap[child].compareTo(bound) < 0) {               // children that are not due yet are never needed
+            frontier.add(child);
+          }
+        }
+      }
+      if ((long) count * depth(size) < size) {
+        for (int i = 0; i < count; i++) {
+          sink.add(poll());
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          sink.add(heap[found[i]]);
+          heap[found[i]] = null;
+        }
+        int kept = 0;
+        for (int i = 0; i < size; i++) {                                         // slide the remaining cards together
+          if (heap[i] != null) {
+            heap[kept] = heap[i];
+            kept++;
+          }
+        }
+        for (int i = kept; i < size; i++) {
+          heap[i] = null;
+        }
+        size = kept;
+        heapify();
+        if (Metrics.ENABLED) {
+          stats.polls += count;                    // poll counts the cards it takes out in the other branch
+        }
+      }
+      return count;
+    }
+
+    /** Adds the given item to the queue. */
+    public void add(Flashcard flashcard) {
+        ensureCapacity();
+        reheapForAdd(size, flashcard);              // the new card starts in the first free slot and moves up from there
+        size++;
+        if (Metrics.ENABLED) {
+          stats.adds++;
+        }
+    }
+
+    /** Moves the hole at index up until flashcard is not earlier than the parent of the
+     * hole, shifting each later parent down into it, then puts flashcard in the hole.
+     */
+    private void reheapForAdd(int index, Flashcard flashcard) {
+      int levels = 0;
+      while (index > 0) {
+        int parentIndex = (index - 1) / arity;
+        Flashcard parent = heap[parentIndex];
+        if (flashcard.compareTo(parent) >= 0) {
+          break;
+        }
+        heap[index] = parent;
+        index = parentIndex;
+        levels++;
+      }
+      heap[index] = flashcard;
+      if (Metrics.ENABLED) {
+        stats.siftUp(levels, index > 0 ? levels + 1 : levels);   // the card was compared once more with the parent it stopped under
+      }
+    }
+
+    /** Removes the first item according to compareTo from the queue, and returns it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+     public Flashcard poll() {
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      Flashcard flashcard = heap[0];                  // stores the value of the root.
+      size--;
+      Flashcard last = heap[size];                    // the last flashcard fills the hole left at the root.
+      heap[size] = null;
+      if (size > 0) {
+        reheapForPoll(0, last);
+      }
+      if (Metrics.ENABLED) {
+        stats.polls++;
+      }
+      return flashcard;
+    }
+
+    /** Moves the hole at index down, shifting the earliest child up into it, until no
+     * child is earlier than flashcard, then puts flashcard in the hole.
+     */
+    private void reheapForPoll(int index, Flashcard flashcard) {
+      int half = (size - 2) / arity;                  // nodes after this one have no children
+      int levels = 0;
+      int comparisons = 0;
+      while (index <= half && size > 1) {
+        int firstChildIndex = arity * index + 1;
+        int lastChildIndex = Math.min(firstChildIndex + arity, size);
+        comparisons += lastChildIndex - firstChildIndex;                // the children with each other, and the earliest with flashcard
+        int earliestChildIndex = firstChildIndex;
+        Flashcard earliestChild = heap[firstChildIndex];
+        for (int i = firstChildIndex + 1; i < lastChildIndex; i++) {
+          if (heap[i].compareTo(earliestChild) < 0) {
+            earliestChildIndex = i;
+            earliestChild = heap[i];
+          }
+        }
+        if (earliestChild.compareTo(flashcard) >= 0) {
+          break;
+        }
+        heap[index] = earliestChild;
+        index = earliestChildIndex;
+        levels++;
+      }
+      heap[index] = flashcard;
+      if (Metrics.ENABLED) {
+        stats.siftDown(levels, comparisons);
+      }
+    }
+
+    /** Returns the first item according to compareTo in the queue, without removing it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public Flashcard peek() {
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      return heap[0];
+    }
+
+    /** Returns an iterator over the flashcards from earliest to latest due date,
+     * without changing the heap. It walks the heap best-first: the next card is
+     * always the earliest one among the children of the cards returned so far, so
+     * returning k cards costs O(k log k) and never touches the rest of the heap.
+     * The queue must not be changed while iterating.
+     */
+    public Iterator<Flashcard> orderedIterator() {
+      java.util.PriorityQueue<Integer> frontier =
+          new java.util.PriorityQueue<Integer>((a, b) -> heap[a].compareTo(heap[b]));  // indices of the candidates for the next card
+      if (!isEmpty()) {
+        frontier.add(0);
+      }
+      return new Iterator<Flashcard>() {
+        public boolean hasNext() {
+          return !frontier.isEmpty();
+        }
+
+        public Flashcard next() {
+          if (frontier.isEmpty()) {
+            throw new NoSuchElementException();
+          }
+          int index = frontier.poll();
+          int lastChildIndex = Math.min(arity * index + arity, size - 1);
+          for (int child = arity * index + 1; child <= lastChildIndex; child++) {   // its children are now candidates too
+            frontier.add(child);
+          }
+          return heap[index];
+        }
+      };
+    }
+
+    /** Returns true if the queue is empty. */
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    /** Removes all items from the queue. */
+    public void clear() {
+      for (int i = 0; i < size; i++) {
+        heap[i] = null;                           // equal all the flashcards in the heap to null
+      }
+      size = 0;
+    }
+
+    /** If the array is full, it doubles the size of the array.*/
+    private void ensureCapacity() {
+      if (size == heap.length) {
+        Flashcard[] tempHeap = new Flashcard[2 * heap.length];
+        System.arraycopy(heap, 0, tempHeap, 0, size);
+        heap = tempHeap;
+        if (Metrics.ENABLED) {
+          stats.resizes++;
+        }
+      }
+    }
+
+    public static void main(String[] args) {
+
+      FlashcardPriorityQueue flashcards = new FlashcardPriorityQueue();
+      Flashcard f1 = new Flashcard("2021-11-29T12:11", "Belgrade", "Serbia");
+      Flashcard f2 = new Flashcard("2021-11-29T12:10", "Sarajevo", "Bosnia and Herzegovina");
+      Flashcard f3 = new Flashcard("2021-11-29T12:08", "Zagreb", "Croatia");
+      Flashcard f4 = new Flashcard("2021-11-29T12:08", "Podgorica", "Montenegro");
+      Flashcard f5 = new Flashcard("2021-11-29T12:12", "Ljubljana", "Slovenia");
+      Flashcard f6 = new Flashcard("2021-11-29T12:07", "Tirana", "Albania");
+      Flashcard f7 = new Flashcard("2021-11-29T12:09", "Pristine", "Kosovo");
+
+      // test for add() and peek()
+      flashcards.add(f1);
+      System.err.println("This should print out Belgrade: " + flashcards.peek().getFrontText());
+      flashcards.add(f2);
+      System.err.println("This should print out Sarajevo: " + flashcards.peek().getFrontText());
+      flashcards.add(f3);
+      System.err.println("This should print out Zagreb: " + flashcards.peek().getFrontText());
+      flashcards.add(f4);
+      System.err.println("This should print out Zagreb: " + flashcards.peek().getFrontText());
+      flashcards.add(f5);
+      System.err.println("This should print out Zagreb: " + flashcards.peek().getFrontText());
+      flashcards.add(f6);
+      System.err.println("This should print out Tirana: " + flashcards.peek().getFrontText());
+      flashcards.add(f7);
+      System.err.println("This should print out Tirana: " + flashcards.peek().getFrontText());
+
+      // test for poll()
+      flashcards.poll();
+      System.err.println("This should print out Zagreb: " + flashcards.peek().getFrontText());
+      flashcards.poll();
+      System.err.println("This should print out Podgorica: " + flashcards.peek().getFrontText());
+      flashcards.poll();
+      System.err.println("This should print out Pristine: " + flashcards.peek().getFrontText());
+      flashcards.poll();
+      System.err.println("This should print out Sarajevo: " + flashcards.peek().getFrontText());
+      flashcards.poll();
+      System.err.println("This should print out Belgrade: " + flashcards.peek().getFrontText());
+      flashcards.poll();
+      System.err.println("This should print out Ljubljana: " + flashcards.peek().getFrontText());
+
+
+      // test for clear() and isEmpty()
+      flashcards.add(f1);
+      flashcards.add(f2);
+      flashcards.add(f3);
+      flashcards.add(f4);
+      flashcards.add(f5);
+      if (flashcards.isEmpty()) {
+        System.err.println("The heap is not empty, but isEmpty() returns true.");
+      }
+      flashcards.clear();
+      if (!flashcards.isEmpty()) {
+        System.err.println("The heap is supposed to be empty after calling clear(), but isEmpty() returns false.");
+      }
+      flashcards.add(f1);
+      if (flashcards.isEmpty()) {
+        System.err.println("The heap is not empty, but isEmpty() returns true.");
+      }
+
+      // test for addAll() and the bulk constructor
+      flashcards.addAll(java.util.Arrays.asList(f2, f3, f4, f5, f6, f7));
+      System.err.println("This should print out Tirana: " + flashcards.poll().getFrontText());
+      FlashcardPriorityQueue bulk = new FlashcardPriorityQueue(java.util.Arrays.asList(f1, f2, f5, f7));
+      System.err.println("This should print out Pristine: " + bulk.poll().getFrontText());
+      System.err.println("This should print out Sarajevo: " + bulk.poll().getFrontText());
+    }
+ }
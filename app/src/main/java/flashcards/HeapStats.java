@@ -0,0 +1,134 @@
+package flashcards;
+
+/**
+ * The counters of one FlashcardPriorityQueue. Only the queue updates them, from
+ * whatever thread is using it; they are plain fields, so a reader on another thread
+ * (e.g. JMX) may see values that are a little out of date.
+ * @author Aris Karamustafic
+ */
+
+public class HeapStats implements HeapStatsMBean {
+
+  private final FlashcardPriorityQueue queue;
+  long adds;
+  long polls;
+  long comparisons;
+  long shifts;
+  long siftUps;
+  long siftUpLevels;
+  int maxSiftUpDepth;
+  long siftDowns;
+  long siftDownLevels;
+  int maxSiftDownDepth;
+  long resizes;
+
+  HeapStats(FlashcardPriorityQueue queue) {
+    this.queue = queue;
+  }
+
+  /** Counts a sift up that moved the card levels levels and compared it comparisons times. */
+  void siftUp(int levels, int comparisons) {
+    this.comparisons += comparisons;
+    shifts += levels;
+    siftUps++;
+    siftUpLevels += levels;
+    maxSiftUpDepth = Math.max(maxSiftUpDepth, levels);
+  }
+
+  /** Counts a sift down that moved the card levels levels and made comparisons comparisons. */
+  void siftDown(int levels, int comparisons) {
+    this.comparisons += comparisons;
+    shifts += levels;
+    siftDowns++;
+    siftDownLevels += levels;
+    maxSiftDownDepth = Math.max(maxSiftDownDepth, levels);
+  }
+
+  @Override
+  public long getAdds() {
+    return adds;
+  }
+
+  @Override
+  public long getPolls() {
+    return polls;
+  }
+
+  @Override
+  public long getComparisons() {
+    return comparisons;
+  }
+
+  @Override
+  public long getShifts() {
+    return shifts;
+  }
+
+  @Override
+  public long getSiftUps() {
+    return siftUps;
+  }
+
+  @Override
+  public double getAverageSiftUpDepth() {
+    return siftUps == 0 ? 0 : (double) siftUpLevels / siftUps;
+  }
+
+  @Override
+  public int getMaxSiftUpDepth() {
+    return maxSiftUpDepth;
+  }
+
+  @Override
+  public long getSiftDowns() {
+    return siftDowns;
+  }
+
+  @Override
+  public double getAverageSiftDownDepth() {
+    return siftDowns == 0 ? 0 : (double) siftDownLevels / siftDowns;
+  }
+
+  @Override
+  public int getMaxSiftDownDepth() {
+    return maxSiftDownDepth;
+  }
+
+  @Override
+  public long getResizes() {
+    return resizes;
+  }
+
+  @Override
+  public int getSize() {
+    return queue.size();
+  }
+
+  @Override
+  public int getCapacity() {
+    return queue.capacity();
+  }
+
+  @Override
+  public void reset() {
+    adds = 0;
+    polls = 0;
+    comparisons = 0;
+    shifts = 0;
+    siftUps = 0;
+    siftUpLevels = 0;
+    maxSiftUpDepth = 0;
+    siftDowns = 0;
+    siftDownLevels = 0;
+    maxSiftDownDepth = 0;
+    resizes = 0;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("heap     size=%d capacity=%d adds=%d polls=%d comparisons=%d shifts=%d resizes=%d%n"
+        + "         sift up: %d, %.2f levels on average, %d at most; sift down: %d, %.2f levels on average, %d at most",
+        getSize(), getCapacity(), adds, polls, comparisons, shifts, resizes,
+        siftUps, getAverageSiftUpDepth(), maxSiftUpDepth, siftDowns, getAverageSiftDownDepth(), maxSiftDownDepth);
+  }
+}
@@ -0,0 +1,38 @@
+package flashcards;
+
+/**
+ * What the counters of a FlashcardPriorityQueue show over JMX.
+ * @author Aris Karamustafic
+ */
+
+public interface HeapStatsMBean {
+
+  long getAdds();
+
+  long getPolls();
+
+  long getComparisons();
+
+  /** Cards moved one level by a sift (the heap moves a hole, so this is its version of a swap). */
+  long getShifts();
+
+  long getSiftUps();
+
+  double getAverageSiftUpDepth();
+
+  int getMaxSiftUpDepth();
+
+  long getSiftDowns();
+
+  double getAverageSiftDownDepth();
+
+  int getMaxSiftDownDepth();
+
+  long getResizes();
+
+  int getSize();
+
+  int getCapacity();
+
+  void reset();
+}
@@ -0,0 +1,366 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A ternary heap of flashcards where every card gets a stable handle (a small int)
+ * when it is added. The queue keeps track of where each handle's card is in the
+ * heap, so a card can be rescheduled in place (moved up or down from where it is)
+ * or removed from the middle of the queue without searching for it. The card
+ * object itself is kept, so rescheduling allocates nothing.
+ * A handle stays valid until its card is polled or removed, and may then be
+ * given to another card. FlashcardDisplayer uses this for its quiz: the card
+ * that is due first is graded where it is and sifted down once, instead of being
+ * taken out and added back (two sifts, and a page of due cards held aside).
+ * @author Aris Karamustafic
+ */
+
+public class IndexedFlashcardPriorityQueue implements PriorityQueue<Flashcard> {
+
+    private Flashcard[] heap;                       // slot 0 is unused, parent of i is (i+1)/3
+    private int[] handleAt;                         // handleAt[i] is the handle of heap[i]
+    private int[] positionOf;                       // positionOf[h] is where handle h's card is in heap, 0 if h is not in use
+    private int[] freeHandles;                      // handles that can be given out again
+    private int freeCount;
+    private int nextHandle;                         // the lowest handle never given out
+    private int lastIndex;
+    private static final int DEFAULT_CAPACITY = 1;
+
+    public IndexedFlashcardPriorityQueue() {
+      heap = new Flashcard[DEFAULT_CAPACITY + 1];
+      handleAt = new int[DEFAULT_CAPACITY + 1];
+      positionOf = new int[DEFAULT_CAPACITY];
+      freeHandles = new int[DEFAULT_CAPACITY];
+      lastIndex = 0;
+    }
+
+    /** Adds the given item to the queue. */
+    public void add(Flashcard flashcard) {
+      addWithHandle(flashcard);
+    }
+
+    /** Adds all of the given flashcards, growing the arrays at most once. A large
+     * batch is put in order by rebuilding the heap bottom-up in linear time, a small
+     * one by sifting each new card up (see FlashcardPriorityQueue.addAll).
+     */
+    @Override
+    public void addAll(Collection<? extends Flashcard> flashcards) {
+      int count = flashcards.size();
+      int needed = lastIndex + count + 1;
+      if (needed > heap.length) {
+        int newSize = (lastIndex == 0) ? needed : Math.max(needed, 2 * heap.length);
+        heap = Arrays.copyOf(heap, newSize);
+        handleAt = Arrays.copyOf(handleAt, newSize);
+      }
+      int neededHandles = nextHandle + Math.max(count - freeCount, 0);
+      if (neededHandles > positionOf.length) {
+        int newSize = (nextHandle == 0) ? neededHandles : Math.max(neededHandles, 2 * positionOf.length);
+        positionOf = Arrays.copyOf(positionOf, newSize);
+        freeHandles = Arrays.copyOf(freeHandles, newSize);
+      }
+      boolean small = (long) count * (64 - Long.numberOfLeadingZeros(lastIndex + count)) < lastIndex + count;   // about count * log(size) work
+      for (Flashcard flashcard : flashcards) {
+        int handle = (freeCount > 0) ? freeHandles[--freeCount] : nextHandle++;
+        lastIndex++;
+        place(flashcard, handle, lastIndex);
+        if (small) {
+          reheapForAdd(lastIndex);
+        }
+      }
+      if (!small) {
+        for (int i = (lastIndex + 1) / 3; i >= 1; i--) {          // sift down every parent, last one first
+          reheapForPoll(i);
+        }
+      }
+    }
+
+    /** Adds the given flashcard to the queue and returns its handle. */
+    public int addWithHandle(Flashcard flashcard) {
+      ensureCapacity();
+      int handle = (freeCount > 0) ? freeHandles[--freeCount] : nextHandle++;
+      lastIndex++;
+      heap[lastIndex] = flashcard;
+      handleAt[lastIndex] = handle;
+      positionOf[handle] = lastIndex;
+      reheapForAdd(lastIndex);
+      return handle;
+    }
+
+    /** Returns the flashcard with the given handle.
+     * Throws a NoSuchElementException if the handle is not in the queue.
+     */
+    public Flashcard get(int handle) {
+      return heap[position(handle)];
+    }
+
+    /** Returns true if the handle belongs to a card that is in the queue. */
+    public boolean contains(int handle) {
+      return handle >= 0 && handle < nextHandle && positionOf[handle] != 0;
+    }
+
+    /** Returns the handle of the first flashcard, without removing it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public int peekHandle() {
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      return handleAt[1];
+    }
+
+    /** Changes the due date of the card with the given handle and moves it to its new
+     * place in the heap: up if it now comes before its parent, otherwise down.
+     * Throws a NoSuchElementException if the handle is not in the queue.
+     */
+    public void reschedule(int handle, LocalDateTime newDueDate) {
+      int index = position(handle);
+      heap[index].setDueDate(newDueDate);
+      reheapAt(index);
+    }
+
+    /** Grades the card with the given handle with policy (see SchedulingPolicy) and
+     * moves it to the place of its new due date.
+     * Throws a NoSuchElementException if the handle is not in the queue.
+     */
+    public void reschedule(int handle, SchedulingPolicy policy, boolean correct, LocalDateTime timeNow) {
+      int index = position(handle);
+      policy.reschedule(heap[index], correct, timeNow);
+      reheapAt(index);
+    }
+
+    /** Removes the card with the given handle from the queue, and returns it.
+     * Throws a NoSuchElementException if the handle is not in the queue.
+     */
+    public Flashcard remove(int handle) {
+      return removeAt(position(handle));
+    }
+
+    /** Removes the first item according to compareTo from the queue, and returns it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public Flashcard poll() {
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      return removeAt(1);
+    }
+
+    /** Returns the first item according to compareTo in the queue, without removing it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public Flashcard peek() {
+      if (isEmpty()) {
+        throw new NoSuchElementException();
+      }
+      return heap[1];
+    }
+
+    /** Returns an iterator over the flashcards from earliest to latest due date,
+     * without changing the heap (a best-first walk, see FlashcardPriorityQueue).
+     * The queue must not be changed while iterating.
+     */
+    public Iterator<Flashcard> orderedIterator() {
+      java.util.PriorityQueue<Integer> frontier =
+          new java.util.PriorityQueue<Integer>((a, b) -> heap[a].compareTo(heap[b]));
+      if (!isEmpty()) {
+        frontier.add(1);
+      }
+      return new Iterator<Flashcard>() {
+        public boolean hasNext() {
+          return !frontier.isEmpty();
+        }
+
+        public Flashcard next() {
+          if (frontier.isEmpty()) {
+            throw new NoSuchElementException();
+          }
+          int index = frontier.poll();
+          int lastChildIndex = Math.min(index * 3 + 1, lastIndex);
+          for (int child = index * 3 - 1; child <= lastChildIndex; child++) {
+            frontier.add(child);
+          }
+          return heap[index];
+        }
+      };
+    }
+
+    /** Returns true if the queue is empty. */
+    public boolean isEmpty() {
+      return lastIndex == 0;
+    }
+
+    /** Removes all items from the queue. All handles become unused. */
+    public void clear() {
+      for (int i = 1; i <= lastIndex; i++) {
+        heap[i] = null;
+      }
+      for (int handle = 0; handle < nextHandle; handle++) {
+        positionOf[handle] = 0;
+      }
+      lastIndex = 0;
+      nextHandle = 0;
+      freeCount = 0;
+    }
+
+    private int position(int handle) {
+      if (!contains(handle)) {
+        throw new NoSuchElementException("No flashcard with handle " + handle);
+      }
+      return positionOf[handle];
+    }
+
+    /** Takes the card at index out of the heap, fills the hole with the last card and
+     * moves that card up or down to where it belongs.
+     */
+    private Flashcard removeAt(int index) {
+      Flashcard flashcard = heap[index];
+      int handle = handleAt[index];
+      positionOf[handle] = 0;
+      freeHandles[freeCount++] = handle;
+      if (index != lastIndex) {
+        place(heap[lastIndex], handleAt[lastIndex], index);
+      }
+      heap[lastIndex] = null;
+      lastIndex--;
+      if (index <= lastIndex) {
+        reheapForAdd(index);
+        reheapForPoll(index);                         // at most one of the two moves the card
+      }
+      return flashcard;
+    }
+
+    /** Moves the card at index, whose due date has changed, up or down to where it belongs. */
+    private void reheapAt(int index) {
+      int parentIndex = (index + 1) / 3;
+      if (parentIndex > 0 && heap[index].compareTo(heap[parentIndex]) < 0) {
+        reheapForAdd(index);
+      } else {
+        reheapForPoll(index);
+      }
+    }
+
+    /** Moves the card at index up while it has an earlier due date than its parent. */
+    private void reheapForAdd(int index) {
+      Flashcard flashcard = heap[index];
+      int handle = handleAt[index];
+      int parentIndex = (index + 1) / 3;
+      while (parentIndex > 0 && flashcard.compareTo(heap[parentIndex]) < 0) {
+        place(heap[parentIndex], handleAt[parentIndex], index);     // the parent moves down into the hole
+        index = parentIndex;
+        parentIndex = (index + 1) / 3;
+      }
+      place(flashcard, handle, index);
+    }
+
+    /** Moves the card at index down while one of its children has an earlier due date. */
+    private void reheapForPoll(int index) {
+      Flashcard flashcard = heap[index];
+      int handle = handleAt[index];
+      int leftChildIndex = index * 3 - 1;
+      while (leftChildIndex <= lastIndex) {
+        int earliestChildIndex = leftChildIndex;
+        int lastChildIndex = Math.min(leftChildIndex + 2, lastIndex);
+        for (int i = leftChildIndex + 1; i <= lastChildIndex; i++) {
+          if (heap[i].compareTo(heap[earliestChildIndex]) < 0) {
+            earliestChildIndex = i;
+          }
+        }
+        if (heap[earliestChildIndex].compareTo(flashcard) >= 0) {
+          break;
+        }
+        place(heap[earliestChildIndex], handleAt[earliestChildIndex], index);   // the earliest child moves up into the hole
+        index = earliestChildIndex;
+        leftChildIndex = index * 3 - 1;
+      }
+      place(flashcard, handle, index);
+    }
+
+    private void place(Flashcard flashcard, int handle, int index) {
+      heap[index] = flashcard;
+      handleAt[index] = handle;
+      positionOf[handle] = index;
+    }
+
+    /** If the arrays are full, it doubles their size. */
+    private void ensureCapacity() {
+      if (lastIndex + 1 == heap.length) {
+        int newSize = 2 * heap.length;
+        Flashcard[] tempHeap = new Flashcard[newSize];
+        int[] tempHandles = new int[newSize];
+        System.arraycopy(heap, 1, tempHeap, 1, lastIndex);
+        System.arraycopy(handleAt, 1, tempHandles, 1, lastIndex);
+        heap = tempHeap;
+        handleAt = tempHandles;
+      }
+      if (nextHandle == positionOf.length && freeCount == 0) {     // every handle is in use, so there is room for more
+        positionOf = Arrays.copyOf(positionOf, 2 * positionOf.length);
+        freeHandles = new int[positionOf.length];
+      }
+    }
+
+    public static void main(String[] args) {
+
+      IndexedFlashcardPriorityQueue flashcards = new IndexedFlashcardPriorityQueue();
+      int belgrade = flashcards.addWithHandle(new Flashcard("2021-11-29T12:11", "Belgrade", "Serbia"));
+      int sarajevo = flashcards.addWithHandle(new Flashcard("2021-11-29T12:10", "Sarajevo", "Bosnia and Herzegovina"));
+      int zagreb = flashcards.addWithHandle(new Flashcard("2021-11-29T12:08", "Zagreb", "Croatia"));
+      int tirana = flashcards.addWithHandle(new Flashcard("2021-11-29T12:07", "Tirana", "Albania"));
+      flashcards.addWithHandle(new Flashcard("2021-11-29T12:12", "Ljubljana", "Slovenia"));
+
+      // test for reschedule() and remove()
+      System.err.println("This should print out Tirana: " + flashcards.peek().getFrontText());
+      flashcards.reschedule(belgrade, LocalDateTime.parse("2021-11-29T12:00"));
+      System.err.println("This should print out Belgrade: " + flashcards.peek().getFrontText());
+      flashcards.reschedule(belgrade, LocalDateTime.parse("2021-11-30T12:00"));
+      System.err.println("This should print out Tirana: " + flashcards.get(flashcards.peekHandle()).getFrontText());
+      flashcards.remove(tirana);
+      flashcards.remove(sarajevo);
+      System.err.println("This should print out Zagreb: " + flashcards.poll().getFrontText());
+      if (flashcards.contains(zagreb)) {
+        System.err.println("Zagreb was polled, but its handle is still in use.");
+      }
+      System.err.println("This should print out Ljubljana: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out Belgrade: " + flashcards.poll().getFrontText());
+      if (!flashcards.isEmpty()) {
+        System.err.println("The heap is supposed to be empty, but isEmpty() returns false.");
+      }
+
+      // test for reschedule() within the same millisecond, and with a policy
+      int skopje = flashcards.addWithHandle(new Flashcard("2021-11-29T12:07:00.000000500", "Skopje", "North Macedonia"));
+      flashcards.addWithHandle(new Flashcard("2021-11-29T12:07:00.000000300", "Podgorica", "Montenegro"));
+      flashcards.reschedule(skopje, LocalDateTime.parse("2021-11-29T12:07:00.000000100"));
+      System.err.println("This should print out Skopje: " + flashcards.peek().getFrontText());
+      flashcards.reschedule(skopje, new FixedIntervalPolicy(), true, LocalDateTime.parse("2021-11-29T12:07"));
+      System.err.println("This should print out Podgorica: " + flashcards.poll().getFrontText());
+      System.err.println("This should print out 2021-11-30T12:07: " + flashcards.poll().getDueDate());
+      if (!flashcards.isEmpty()) {
+        System.err.println("The heap is supposed to be empty, but isEmpty() returns false.");
+      }
+
+      // test for addAll(): a whole deck, then a small batch, with every handle still finding its card
+      java.util.List<Flashcard> deck = new java.util.ArrayList<Flashcard>();
+      for (int i = 0; i < 1000; i++) {
+        deck.add(new Flashcard(LocalDateTime.parse("2021-11-29T12:00").plusMinutes((i * 7919) % 1000), "Card", ""));
+      }
+      flashcards.addAll(deck);
+      flashcards.addAll(Arrays.asList(new Flashcard("2021-11-29T11:00", "Sarajevo", ""), new Flashcard("2021-11-30T11:00", "Belgrade", "")));
+      boolean handlesFound = true;
+      for (int handle = 0; handle < 1002; handle++) {
+        handlesFound &= flashcards.contains(handle) && flashcards.get(handle) != null;
+      }
+      System.err.println("This should print out true: " + handlesFound);
+      System.err.println("This should print out Sarajevo: " + flashcards.poll().getFrontText());
+      boolean inOrder = true;
+      Flashcard previous = flashcards.poll();
+      while (!flashcards.isEmpty()) {
+        Flashcard next = flashcards.poll();
+        inOrder &= previous.compareTo(next) <= 0;
+        previous = next;
+      }
+      System.err.println("This should print out true, Belgrade: " + inOrder + ", " + previous.getFrontText());
+    }
+}
@@ -0,0 +1,148 @@
+package flashcards;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds with a fixed set of buckets: every power
+ * of two is split into 16 buckets, so a percentile is never off by more than about
+ * 6%, and recording is one increment with no allocation. It is safe to record from
+ * several threads and read from another (e.g. over JMX).
+ * @author Aris Karamustafic
+ */
+
+public class LatencyHistogram implements LatencyHistogramMBean {
+
+  private static final int SUB_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BITS;                      // buckets per power of two
+  private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  private final String name;
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong totalNanos = new AtomicLong();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public LatencyHistogram(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /** Records one duration; negative durations count as 0. */
+  public void record(long nanos) {
+    nanos = Math.max(nanos, 0);
+    counts.incrementAndGet(bucket(nanos));
+    count.incrementAndGet();
+    totalNanos.addAndGet(nanos);
+    maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /** Records the time since start, a value of System.nanoTime(). */
+  public void recordSince(long start) {
+    record(System.nanoTime() - start);
+  }
+
+  /** Returns the bucket of value: values below 16 have a bucket each, larger ones
+   * share a bucket with the values that agree with them in the highest 5 bits.
+   */
+  private static int bucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  /** Returns the largest value that falls into bucket. */
+  private static long highestValue(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  /** Returns the duration in nanoseconds that fraction (0 to 1) of the recorded durations do not exceed. */
+  public long percentileNanos(double fraction) {
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(fraction * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestValue(i), maxNanos.get());
+      }
+    }
+    return maxNanos.get();                                 // the counts moved while they were being read
+  }
+
+  @Override
+  public long getCount() {
+    return count.get();
+  }
+
+  @Override
+  public double getMeanMicros() {
+    long total = count.get();
+    return total == 0 ? 0 : totalNanos.get() / 1000.0 / total;
+  }
+
+  @Override
+  public double getP50Micros() {
+    return percentileNanos(0.50) / 1000.0;
+  }
+
+  @Override
+  public double getP99Micros() {
+    return percentileNanos(0.99) / 1000.0;
+  }
+
+  @Override
+  public double getMaxMicros() {
+    return maxNanos.get() / 1000.0;
+  }
+
+  @Override
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    totalNanos.set(0);
+    maxNanos.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%-8s count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+        name, getCount(), getMeanMicros(), getP50Micros(), getP99Micros(), getMaxMicros());
+  }
+
+  public static void main(String[] args) {
+    LatencyHistogram histogram = new LatencyHistogram("test");
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);                         // 1us up to 1000us
+    }
+    System.err.println("This should print out 1000: " + histogram.getCount());
+    System.err.println("This should print out about 500.5: " + histogram.getMeanMicros());
+    System.err.println("This should print out about 500 (at most 6% more): " + histogram.getP50Micros());
+    System.err.println("This should print out about 990 (at most 6% more): " + histogram.getP99Micros());
+    System.err.println("This should print out 1000.0: " + histogram.getMaxMicros());
+    for (long value = 0; value < 1L << 40; value = value * 3 + 1) {
+      long highest = highestValue(bucket(value));
+      if (highest < value || bucket(highest) != bucket(value)) {
+        System.err.println("The bucket of " + value + " ends at " + highest);
+      }
+    }
+    histogram.reset();
+    System.err.println("This should print out 0: " + histogram.getCount());
+  }
+}
@@ -0,0 +1,21 @@
+package flashcards;
+
+/**
+ * What a LatencyHistogram shows over JMX. All times are in microseconds.
+ * @author Aris Karamustafic
+ */
+
+public interface LatencyHistogramMBean {
+
+  long getCount();
+
+  double getMeanMicros();
+
+  double getP50Micros();
+
+  double getP99Micros();
+
+  double getMaxMicros();
+
+  void reset();
+}
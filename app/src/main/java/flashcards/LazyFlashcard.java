@@ -0,0 +1,41 @@
+package flashcards;
+
+/**
+ * A flashcard that keeps only its due date and where its line starts in the deck
+ * file. Its front and back text are read through a CardTextCache when they are
+ * asked for, e.g. when the card is displayed. A save reads them straight from the
+ * file instead (see readTexts), so writing the whole deck does not flush the cache.
+ * @author Aris Karamustafic
+ */
+
+public class LazyFlashcard extends Flashcard {
+
+  private final CardTextCache cache;
+  private final long offset;                   // byte offset of the card's line in the deck file
+
+  public LazyFlashcard(long dueKey, int dueNanos, CardTextCache cache, long offset) {
+    super(dueKey, dueNanos, null, null);
+    this.cache = cache;
+    this.offset = offset;
+  }
+
+  @Override
+  public String getFrontText() {
+    return cache.get(offset)[0];
+  }
+
+  @Override
+  public String getBackText() {
+    return cache.get(offset)[1];
+  }
+
+  @Override
+  public String[] getTexts() {
+    return cache.get(offset).clone();
+  }
+
+  /** Returns {front, back} read from the deck file, without using or changing the cache. */
+  String[] readTexts() {
+    return cache.readThrough(offset);
+  }
+}
@@ -0,0 +1,51 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+
+/**
+ * The Leitner box system: every card is in a box, and the higher the box the
+ * longer until the card is shown again. A right answer moves the card up one box
+ * (it stays in the last one); a wrong answer sends it back to the start, to be
+ * shown again in a minute. The card's schedule is its box, 0 being the start; a
+ * schedule that is not a box (e.g. one written by SM2Policy) counts as the start.
+ * @author Aris Karamustafic
+ */
+
+public class LeitnerPolicy implements SchedulingPolicy {
+
+  public static final int[] DEFAULT_BOX_DAYS = {1, 2, 4, 8, 16, 32};
+
+  private final int[] boxDays;                   // boxDays[i] is how many days a card in box i + 1 waits
+
+  public LeitnerPolicy() {
+    this(DEFAULT_BOX_DAYS);
+  }
+
+  public LeitnerPolicy(int[] boxDays) {
+    if (boxDays.length == 0) {
+      throw new IllegalArgumentException("There must be at least one box");
+    }
+    this.boxDays = boxDays.clone();
+  }
+
+  @Override
+  public void reschedule(Flashcard flashcard, boolean correct, LocalDateTime timeNow) {
+    if (!correct) {
+      flashcard.setSchedule(0);
+      flashcard.setDueDate(timeNow.plusMinutes(1));
+      return;
+    }
+    long schedule = flashcard.getSchedule();
+    if (schedule < 0 || schedule > boxDays.length) {
+      schedule = 0;                               // written by another policy, so the card starts over
+    }
+    int box = (int) Math.min(schedule + 1, boxDays.length);
+    flashcard.setSchedule(box);
+    flashcard.setDueDate(timeNow.plusDays(boxDays[box - 1]));
+  }
+
+  @Override
+  public String toString() {
+    return "leitner";
+  }
+}
@@ -0,0 +1,388 @@
+package flashcards;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A queue over several deck files at once. A file whose cards are already in
+ * due-date order (as saveFlashcards writes them) is not loaded: only its next card
+ * is kept in memory, and the files are merged lazily, reading the next line of a
+ * file when its card is polled. Files that are out of order, binary decks, and
+ * decks with a review journal to replay are loaded in full into an ordinary queue,
+ * which also holds every card added later (e.g. graded cards), and are merged with
+ * the rest in the same way.
+ * @author Aris Karamustafic
+ */
+
+public class MergedDeckQueue implements PriorityQueue<Flashcard> {
+
+  private final PriorityQueue<Flashcard> loaded;               // the cards that are in memory
+  private final java.util.PriorityQueue<DeckCursor> cursors;   // the files that are read lazily, by their next card
+  private final List<String> problems;
+
+  /** Opens the decks at filePaths, keeping the cards that have to be loaded in the given (empty) queue. */
+  public MergedDeckQueue(List<String> filePaths, PriorityQueue<Flashcard> loaded) throws IOException {
+    this.loaded = loaded;
+    cursors = new java.util.PriorityQueue<DeckCursor>((a, b) -> a.head.compareTo(b.head));
+    problems = new ArrayList<String>();
+    List<Flashcard> deck = new ArrayList<Flashcard>();
+    try {
+      for (String filePath : filePaths) {
+        if (BinaryDeck.isBinaryDeck(filePath) || ReviewJournal.hasRecords(filePath) || !isSorted(filePath)) {
+          DeckReader deckReader = new DeckReader();
+          List<Flashcard> cards = deckReader.read(filePath);
+          List<String> journalProblems = ReviewJournal.replay(filePath, cards);
+          deck.addAll(cards);
+          for (String problem : deckReader.getProblems()) {
+            problems.add(filePath + " " + problem);
+          }
+          for (String problem : journalProblems) {
+            problems.add(filePath + " " + problem);
+          }
+        } else {
+          DeckCursor cursor = new DeckCursor(filePath, problems);
+          if (cursor.head != null) {
+            cursors.add(cursor);
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      clear();                                                  // do not leave the files that were opened open
+      throw e;
+    }
+    loaded.addAll(deck);
+  }
+
+  /**
+   * Returns true if the due dates in the file never go down. The dates are
+   * compared as text, without parsing them: the fields up to the minutes have a
+   * fixed width, and the seconds and the fraction are optional but, when there,
+   * extend the date to the right (the fraction left-aligned). So a date that is
+   * less as text is never later, and one missing fields sorts before the same
+   * date with them. Equal dates written differently (e.g. 12:07:00 before 12:07)
+   * only make a sorted file look unsorted, in which case it is loaded in full.
+   * Lines without a due date and a tab are ignored here.
+   */
+  public static boolean isSorted(String filePath) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath), StandardCharsets.UTF_8)) {
+      String previous = "";
+      String line;
+      while ((line = reader.readLine()) != null) {
+        int tab = line.indexOf('\t');
+        if (tab < 0) {
+          continue;
+        }
+        String dueDate = line.substring(0, tab);
+        if (dueDate.compareTo(previous) < 0) {
+          return false;
+        }
+        previous = dueDate;
+      }
+      return true;
+    }
+  }
+
+  /** Returns the lines skipped so far, as "file line N: reason". Lines in the files
+   * that are read lazily are only checked when the merge reaches them.
+   */
+  public List<String> getProblems() {
+    return problems;
+  }
+
+  /** Adds the given item to the queue. */
+  public void add(Flashcard flashcard) {
+    loaded.add(flashcard);
+  }
+
+  @Override
+  public void addAll(Collection<? extends Flashcard> flashcards) {
+    loaded.addAll(flashcards);
+  }
+
+  /** Removes the first item according to compareTo from the queue, and returns it.
+   * Throws a NoSuchElementException if the queue is empty.
+   */
+  public Flashcard poll() {
+    DeckCursor cursor = cursors.peek();
+    if (cursor == null || (!loaded.isEmpty() && loaded.peek().compareTo(cursor.head) <= 0)) {
+      return loaded.poll();                                     // throws if both are empty
+    }
+    cursors.poll();
+    Flashcard flashcard = cursor.head;
+    cursor.advance();                                           // the file's next card takes its place
+    if (cursor.head != null) {
+      cursors.add(cursor);
+    }
+    return flashcard;
+  }
+
+  /** Returns the first item according to compareTo in the queue, without removing it.
+   * Throws a NoSuchElementException if the queue is empty.
+   */
+  public Flashcard peek() {
+    DeckCursor cursor = cursors.peek();
+    if (cursor == null || (!loaded.isEmpty() && loaded.peek().compareTo(cursor.head) <= 0)) {
+      return loaded.peek();
+    }
+    return cursor.head;
+  }
+
+  /** Returns an iterator over the flashcards from earliest to latest due date,
+   * without changing the queue. Every lazily read file is read again from the
+   * start of its next card, through the file the queue already has open, so the
+   * cards it returns for those files are copies. Since the file stays open, this
+   * still reads the version the queue was opened with after a save has replaced
+   * it (e.g. when the merged queue is saved over one of its own files, on systems
+   * where a renamed-over file can still be read). The queue must not be changed
+   * while iterating.
+   */
+  public Iterator<Flashcard> orderedIterator() {
+    Iterator<Flashcard> inMemory = loaded.orderedIterator();
+    java.util.PriorityQueue<DeckCursor> copies = new java.util.PriorityQueue<DeckCursor>((a, b) -> a.head.compareTo(b.head));
+    for (DeckCursor cursor : cursors) {
+      copies.add(new DeckCursor(cursor));
+    }
+    return new Iterator<Flashcard>() {
+      private Flashcard nextInMemory = inMemory.hasNext() ? inMemory.next() : null;
+
+      public boolean hasNext() {
+        return nextInMemory != null || !copies.isEmpty();
+      }
+
+      public Flashcard next() {
+        DeckCursor cursor = copies.peek();
+        if (cursor == null || (nextInMemory != null && nextInMemory.compareTo(cursor.head) <= 0)) {
+          if (nextInMemory == null) {
+            throw new NoSuchElementException();
+          }
+          Flashcard flashcard = nextInMemory;
+          nextInMemory = inMemory.hasNext() ? inMemory.next() : null;
+          return flashcard;
+        }
+        copies.poll();
+        Flashcard flashcard = cursor.head;
+        cursor.advance();
+        if (cursor.head != null) {
+          copies.add(cursor);
+        }
+        return flashcard;
+      }
+    };
+  }
+
+  /** Returns true if the queue is empty. */
+  public boolean isEmpty() {
+    return loaded.isEmpty() && cursors.isEmpty();
+  }
+
+  /** Removes all items from the queue and closes the files. */
+  public void clear() {
+    loaded.clear();
+    for (DeckCursor cursor : cursors) {
+      cursor.close();
+    }
+    cursors.clear();
+  }
+
+  /** A deck file read one card at a time. head is the next card, or null once the
+   * file has run out (the file is then closed). Lines are read at explicit
+   * positions, so copies made for orderedIterator can read the same open file
+   * without moving this cursor.
+   */
+  private static class DeckCursor {
+    private static final int READ_SIZE = 8192;  // bytes read from the file at a time
+
+    final String filePath;
+    final List<String> problems;                // where skipped lines are reported, or null
+    final FileChannel channel;
+    final boolean ownsChannel;                  // copies share the channel of the cursor they were made from
+    Flashcard head;
+    long headStart;                             // the byte offset of the line head was read from
+    int line;                                   // the number of lines read so far
+    private byte[] bytes = new byte[READ_SIZE]; // bytes of the file from offset on; start to filled are not read yet
+    private int start;
+    private int filled;
+    private long offset;
+
+    /** Opens the file and reads its first card. */
+    DeckCursor(String filePath, List<String> problems) throws IOException {
+      this.filePath = filePath;
+      this.problems = problems;
+      channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+      ownsChannel = true;
+      advance();
+    }
+
+    /** A cursor at the same card as original, reading the same open file, that reports no problems. */
+    DeckCursor(DeckCursor original) {
+      filePath = original.filePath;
+      problems = null;
+      channel = original.channel;
+      ownsChannel = false;
+      offset = original.headStart;
+      line = original.line - 1;
+      advance();
+    }
+
+    /** Reads the next line without its newline, or returns null at the end of the file. */
+    private String readLine() throws IOException {
+      int scan = start;
+      while (true) {
+        for (; scan < filled; scan++) {
+          if (bytes[scan] == '\n') {
+            String text = new String(bytes, start, scan - start, StandardCharsets.UTF_8);
+            start = scan + 1;
+            return text;
+          }
+        }
+        if (start > 0) {                                         // move what is left to the front before reading more
+          System.arraycopy(bytes, start, bytes, 0, filled - start);
+          filled -= start;
+          scan -= start;
+          offset += start;
+          start = 0;
+        }
+        if (filled == bytes.length) {                            // a line longer than the buffer
+          bytes = Arrays.copyOf(bytes, 2 * bytes.length);
+        }
+        int read = channel.read(ByteBuffer.wrap(bytes, filled, bytes.length - filled), offset + filled);
+        if (read < 0) {
+          if (start == filled) {
+            return null;
+          }
+          String text = new String(bytes, start, filled - start, StandardCharsets.UTF_8);    // the last line has no newline
+          start = filled;
+          return text;
+        }
+        filled += read;
+      }
+    }
+
+    /** Reads the next well-formed card into head. */
+    void advance() {
+      try {
+        while (true) {
+          long lineStart = offset + start;
+          String text = readLine();
+          if (text == null) {
+            break;
+          }
+          line++;
+          if (text.endsWith("\r")) {                             // tolerate Windows line endings
+            text = text.substring(0, text.length() - 1);
+          }
+          int firstTab = text.indexOf('\t');
+          int secondTab = text.indexOf('\t', firstTab + 1);
+          int thirdTab = (secondTab < 0) ? -1 : text.indexOf('\t', secondTab + 1);
+          if (text.isEmpty()) {
+            continue;                                            // blank lines are not cards
+          }
+          if (firstTab < 0 || secondTab < 0 || (thirdTab >= 0 && text.indexOf('\t', thirdTab + 1) >= 0)) {
+            report("expected 3 or 4 tab-separated fields");
+            continue;
+          }
+          try {
+            Flashcard card = new Flashcard(text.substring(0, firstTab), text.substring(firstTab + 1, secondTab),
+                text.substring(secondTab + 1, (thirdTab < 0) ? text.length() : thirdTab));
+            if (thirdTab >= 0) {
+              card.setSchedule(Long.parseLong(text.substring(thirdTab + 1)));
+            }
+            head = card;
+            headStart = lineStart;
+            return;
+          } catch (DateTimeParseException e) {
+            report("'" + text.substring(0, firstTab) + "' is not a date in the format YYYY-MM-DDTHH:MM");
+          } catch (NumberFormatException e) {
+            report("'" + text.substring(thirdTab + 1) + "' is not a schedule (a whole number)");
+          }
+        }
+      } catch (IOException e) {
+        close();
+        throw new UncheckedIOException(e);
+      }
+      head = null;
+      close();
+    }
+
+    private void report(String reason) {
+      if (problems != null) {
+        problems.add(filePath + " line " + line + ": " + reason);
+      }
+    }
+
+    void close() {
+      if (!ownsChannel) {
+        return;
+      }
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /** Writes lines to a new temporary deck file and returns its path. */
+  private static String deck(String... lines) throws IOException {
+    Path deck = Files.createTempFile("deck", ".txt");
+    Files.write(deck, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    return deck.toString();
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<String> filePaths = Arrays.asList(
+        deck("2021-11-29T12:07\ta1\tback", "2021-11-29T12:07:00\ta2\tback", "2021-11-29T12:07:30.45\ta3\tback",
+            "2021-11-29T12:07:30.5\ta4\tback", "2021-11-29T12:08:01.000000001\ta5\tback", "2021-11-29T13:00\ta6\tback"),
+        deck("2021-11-29T12:06:59.999\tb1\tback", "2021-11-29T12:07:30\tb2\tback", "2021-11-29T12:07:30.46\tb3\tback",
+            "2021-11-29T12:08\tb4\tback", "2021-11-29T12:08:01\tb5\tback", "2021-11-30T00:00:00.1\tb6\tback"),
+        deck("2021-11-29T12:07:30.47\tc1\tback", "2021-11-29T12:07:30.4\tc2\tback", "2021-11-29T12:59:59.9\tc3\tback"));
+
+    // test for sorted files with mixed date formats: only the file that goes down is loaded
+    StringBuilder sorted = new StringBuilder();
+    for (String filePath : filePaths) {
+      sorted.append(isSorted(filePath)).append(' ');
+    }
+    System.err.println("This should print out true true false: " + sorted.toString().trim());
+
+    // test for the merge order: the same as sorting every card by compareTo
+    List<Flashcard> cards = new ArrayList<Flashcard>();
+    for (String filePath : filePaths) {
+      cards.addAll(new DeckReader().read(filePath));
+    }
+    Collections.sort(cards);
+    List<String> expected = new ArrayList<String>();
+    for (Flashcard card : cards) {
+      expected.add(card.getFrontText());
+    }
+    MergedDeckQueue queue = new MergedDeckQueue(filePaths, new FlashcardPriorityQueue());
+    List<String> iterated = new ArrayList<String>();
+    for (Iterator<Flashcard> iterator = queue.orderedIterator(); iterator.hasNext(); ) {
+      iterated.add(iterator.next().getFrontText());
+    }
+    List<String> polled = new ArrayList<String>();
+    while (!queue.isEmpty()) {
+      polled.add(queue.poll().getFrontText());
+    }
+    System.err.println("This should print out " + expected + ": " + iterated);
+    System.err.println("This should print out " + expected + ": " + polled);
+    for (String filePath : filePaths) {
+      Files.delete(Paths.get(filePath));
+    }
+  }
+}
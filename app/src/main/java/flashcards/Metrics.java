@@ -0,0 +1,43 @@
+package flashcards;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The switch for the counters and timers in the queue and the displayer. They are
+ * on only when the program is started with -Dflashcards.metrics=true. ENABLED is a
+ * static final, so when it is false the JIT treats every "if (Metrics.ENABLED)"
+ * as dead code and the instrumentation costs nothing.
+ * @author Aris Karamustafic
+ */
+
+public final class Metrics {
+
+  public static final boolean ENABLED = Boolean.getBoolean("flashcards.metrics");
+
+  private Metrics() {
+  }
+
+  /**
+   * Registers mbean with the platform MBean server as flashcards:type=type,name=name,
+   * replacing one that is already registered under that name. Does nothing when
+   * metrics are off.
+   */
+  public static void register(String type, String name, Object mbean) {
+    if (!ENABLED) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName("flashcards:type=" + type + ",name=" + name);
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      server.registerMBean(mbean, objectName);
+    } catch (JMException e) {
+      System.err.println("Could not register the " + name + " metrics: " + e.getMessage());   // metrics are never worth stopping the program for
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package flashcards;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * An interface for the Priority Queue ADT.  Note that relative priority of
+ * elements is determined with the T.compareTo() method. E.g., if the letters
+ * of the alphabet were stored in a queue, 'a' would be the item at the front
+ * of the queue.
+ * @param <T> the type of data the queue stores.
+ * @author Jadrian Miles
+ * @author Anna Rafferty
+ */
+public interface PriorityQueue<T extends Comparable<? super T>> {
+    
+    /** Adds the given item to the queue. */
+    public void add(T item);
+
+    /** Adds all of the given items to the queue. Implementations may override
+     * this to build the heap in one pass instead of adding items one at a time.
+     */
+    public default void addAll(Collection<? extends T> items) {
+        for (T item : items) {
+            add(item);
+        }
+    }
+    
+    /** Removes the first item according to compareTo from the queue, and returns it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public T poll();
+    
+    /** Removes up to maxItems items from the front of the queue and adds them to sink,
+     * first item first. Returns the number of items removed.
+     */
+    public default int drainTo(Collection<? super T> sink, int maxItems) {
+        int count = 0;
+        while (count < maxItems && !isEmpty()) {
+            sink.add(poll());
+            count++;
+        }
+        return count;
+    }
+
+    /** Removes up to maxItems items that come before bound according to compareTo
+     * and adds them to sink, first item first. Returns the number of items removed.
+     */
+    public default int drainBefore(T bound, Collection<? super T> sink, int maxItems) {
+        int count = 0;
+        while (count < maxItems && !isEmpty() && peek().compareTo(bound) < 0) {
+            sink.add(poll());
+            count++;
+        }
+        return count;
+    }
+
+    /** Returns the first item according to compareTo in the queue, without removing it.
+     * Throws a NoSuchElementException if the queue is empty.
+     */
+    public T peek();
+    
+    /** Returns an iterator over the items in compareTo order, without removing
+     * them from the queue. The queue must not be changed while iterating.
+     */
+    public Iterator<T> orderedIterator();
+
+    /** Returns true if the queue is empty. */
+    public boolean isEmpty();
+    
+    /** Removes all items from the queue. */
+    public void clear();
+}
@@ -0,0 +1,446 @@
+package flashcards;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An append-only log of graded cards kept next to a deck file (deck.txt.journal),
+ * so that progress survives a crash without rewriting the whole deck after every
+ * review. Each record is one line: the card's old due date, its new due date,
+ * its front and back text and, if a policy gave it one, its new schedule,
+ * separated by tabs.
+ *
+ * Records are committed in groups: they are buffered and written and fsynced
+ * together once syncEvery records are waiting, or every syncIntervalMillis,
+ * whichever comes first. When the journal grows past compactThreshold bytes and
+ * a quarter of the deck file (so a big deck is not rewritten every few thousand
+ * reviews) it is renamed to deck.txt.journal.old and a background thread folds it
+ * into a new deck file, after which the old journal is deleted.
+ *
+ * A program that saves its cards to the deck file does so with startSave and
+ * finishSave, which move the journal aside and delete it once the deck is
+ * written. Saves and compactions write the deck file one at a time, so a
+ * compaction can never put an older deck over a newer save.
+ * @author Aris Karamustafic
+ */
+
+public class ReviewJournal implements Closeable {
+
+  public static final int DEFAULT_SYNC_EVERY = 16;
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 1000;
+  public static final long DEFAULT_COMPACT_THRESHOLD = 1024 * 1024;
+
+  private final Path deckPath;
+  private final Path journalPath;
+  private final Path oldJournalPath;          // a journal that is being (or was about to be) folded into the deck
+  private int syncEvery;
+  private final long compactThreshold;
+  private FileChannel channel;
+  private StringBuilder pending;              // records that have not been written yet
+  private int pendingRecords;
+  private IOException failure;                // an error from the background flusher, reported on the next call
+  private final ScheduledExecutorService flusher;
+  private final ExecutorService compactor;
+  private final Object deckLock = new Object();   // held while the deck file or the old journal is changed
+  private long savesStarted;                      // guarded by deckLock
+  private long lastSaveWritten;                   // the newest save that is in the deck file, guarded by deckLock
+  private volatile long deckBytes;                // the size of the deck file when it was last written
+
+  public ReviewJournal(String deckPath) throws IOException {
+    this(deckPath, DEFAULT_SYNC_EVERY, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_COMPACT_THRESHOLD);
+  }
+
+  /**
+   * Opens (or creates) the journal for the deck at deckPath. syncEvery is the
+   * number of records committed with one fsync (1 syncs every review), and
+   * syncIntervalMillis is the longest a record may wait before it is committed.
+   */
+  public ReviewJournal(String deckPath, int syncEvery, long syncIntervalMillis, long compactThreshold) throws IOException {
+    this.deckPath = Paths.get(deckPath).toAbsolutePath();
+    journalPath = journalPath(deckPath);
+    oldJournalPath = oldJournalPath(deckPath);
+    this.syncEvery = syncEvery;
+    this.compactThreshold = compactThreshold;
+    pending = new StringBuilder();
+    deckBytes = Files.exists(this.deckPath) ? Files.size(this.deckPath) : 0;
+    channel = open(journalPath);
+    flusher = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "journal-flusher"));
+    flusher.scheduleWithFixedDelay(this::flushInBackground, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    compactor = Executors.newSingleThreadExecutor(r -> daemon(r, "journal-compactor"));
+    if (Files.exists(oldJournalPath)) {              // the last compaction did not finish, so finish it now
+      compactor.execute(this::compact);
+    }
+  }
+
+  /** Records that flashcard was graded and is now due at its current due date
+   * instead of oldDueDate.
+   */
+  public synchronized void append(Flashcard flashcard, LocalDateTime oldDueDate) throws IOException {
+    throwFailure();
+    TimestampCodec.append(pending, Flashcard.toDueKey(oldDueDate), oldDueDate.getNano() % 1_000_000).append('\t');
+    String[] texts = flashcard.getTexts();
+    flashcard.appendDueDate(pending).append('\t')
+           .append(texts[0]).append('\t')
+           .append(texts[1]);
+    if (flashcard.getSchedule() != 0) {
+      pending.append('\t').append(flashcard.getSchedule());
+    }
+    pending.append('\n');
+    pendingRecords++;
+    if (pendingRecords >= syncEvery) {
+      sync();
+    }
+  }
+
+  /**
+   * Changes how many records are committed with one fsync, e.g. to replay a long
+   * recorded session with fewer of them. Records still wait at most the sync
+   * interval.
+   */
+  public synchronized void setSyncEvery(int syncEvery) {
+    this.syncEvery = syncEvery;
+  }
+
+  /** Writes and fsyncs every record appended so far. */
+  public synchronized void sync() throws IOException {
+    throwFailure();
+    if (pendingRecords == 0) {
+      return;
+    }
+    ByteBuffer bytes = StandardCharsets.UTF_8.encode(pending.toString());
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+    channel.force(false);
+    pending.setLength(0);
+    pendingRecords = 0;
+    long size = channel.size();
+    if (size > compactThreshold && size > deckBytes / 4 && !Files.exists(oldJournalPath)) {
+      rotate();
+    }
+  }
+
+  /** Returns true if path is the deck file of this journal. */
+  public boolean isFor(String path) {
+    return Paths.get(path).toAbsolutePath().normalize().equals(deckPath.normalize());
+  }
+
+  /**
+   * Starts saving the deck: call it at the moment the cards to save are taken, so
+   * that every review journaled so far is in them. The journal is moved aside (to
+   * the old journal) and the reviews after this go to a fresh one. Returns the
+   * number to give finishSave.
+   */
+  public long startSave() throws IOException {
+    synchronized (deckLock) {
+      synchronized (this) {
+        sync();
+        channel.close();
+        if (Files.exists(oldJournalPath)) {
+          try (FileChannel from = FileChannel.open(journalPath, StandardOpenOption.READ);
+               FileChannel to = open(oldJournalPath)) {
+            long size = from.size();
+            for (long done = 0; done < size; ) {
+              done += from.transferTo(done, size - done, to);
+            }
+            to.force(false);
+          }
+          Files.delete(journalPath);
+        } else {
+          Files.move(journalPath, oldJournalPath);
+        }
+        channel = open(journalPath);
+        return ++savesStarted;
+      }
+    }
+  }
+
+  /**
+   * Writes cards, taken when startSave returned save, as the new deck file, and
+   * then deletes the old journal unless a later save has started since. Does
+   * nothing if a later save is already written. If the deck can not be written,
+   * the old journal is folded into it in the background instead.
+   */
+  public void finishSave(long save, Iterator<Flashcard> cards) throws IOException {
+    synchronized (deckLock) {
+      if (save < lastSaveWritten) {
+        return;
+      }
+      try {
+        DeckWriter.write(cards, deckPath.toString());
+      } catch (IOException e) {
+        compactor.execute(this::compact);
+        throw e;
+      }
+      lastSaveWritten = save;
+      deckBytes = Files.size(deckPath);
+      if (save == savesStarted) {
+        Files.deleteIfExists(oldJournalPath);
+      }
+    }
+  }
+
+  /** Commits what is left, waits for a running compaction and closes the journal. */
+  @Override
+  public void close() throws IOException {
+    flusher.shutdown();
+    synchronized (this) {
+      sync();
+      channel.close();
+    }
+    compactor.shutdown();
+    try {
+      compactor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** A review as the journal recorded it. */
+  private static class Record {
+    final long oldDueKey;
+    final int oldDueNanos;
+    final Flashcard graded;                   // the card as it is after the review
+
+    Record(long oldDueKey, int oldDueNanos, Flashcard graded) {
+      this.oldDueKey = oldDueKey;
+      this.oldDueNanos = oldDueNanos;
+      this.graded = graded;
+    }
+  }
+
+  /**
+   * Applies the journal of the deck at deckPath (first any unfinished old journal,
+   * then the current one) to the cards loaded from that deck. A record replaces
+   * a card with the same front, back and old due date by one with the new due
+   * date; records that match no card (e.g. ones already folded into the deck)
+   * are ignored, as is a last record cut short by a crash. Returns the records
+   * that could not be read, as "file line N: reason"; they are skipped.
+   */
+  public static List<String> replay(String deckPath, List<Flashcard> deck) throws IOException {
+    List<String> problems = new ArrayList<String>();
+    List<Record> records = new ArrayList<Record>();
+    read(oldJournalPath(deckPath), records, problems);
+    read(journalPath(deckPath), records, problems);
+    apply(records, deck);
+    return problems;
+  }
+
+  /** Returns true if the deck at deckPath has a journal with reviews in it, i.e. replay may change it. */
+  public static boolean hasRecords(String deckPath) throws IOException {
+    return notEmpty(journalPath(deckPath)) || notEmpty(oldJournalPath(deckPath));
+  }
+
+  private static boolean notEmpty(Path journal) throws IOException {
+    return Files.exists(journal) && Files.size(journal) > 0;
+  }
+
+  /** Reads the complete records of journal, if there is one, into records. */
+  private static void read(Path journal, List<Record> records, List<String> problems) throws IOException {
+    if (!notEmpty(journal)) {                            // an empty journal is there after every run that graded nothing
+      return;
+    }
+    String text = new String(Files.readAllBytes(journal), StandardCharsets.UTF_8);
+    int line = 0;
+    int lineStart = 0;
+    int lineEnd = text.indexOf('\n');
+    while (lineEnd >= 0) {                               // text after the last newline is an unfinished record
+      line++;
+      String[] fields = text.substring(lineStart, lineEnd).split("\t", -1);
+      if (fields.length != 4 && fields.length != 5) {
+        problems.add(journal.getFileName() + " line " + line + ": expected 4 or 5 tab-separated fields but found " + fields.length);
+      } else {
+        try {
+          LocalDateTime oldDueDate = TimestampCodec.parse(fields[0]);
+          Flashcard graded = new Flashcard(fields[1], fields[2], fields[3]);
+          if (fields.length == 5) {
+            graded.setSchedule(Long.parseLong(fields[4]));
+          }
+          records.add(new Record(Flashcard.toDueKey(oldDueDate), oldDueDate.getNano() % 1_000_000, graded));
+        } catch (DateTimeParseException e) {
+          problems.add(journal.getFileName() + " line " + line + ": '" + e.getParsedString() + "' is not a date in the format YYYY-MM-DDTHH:MM");
+        } catch (NumberFormatException e) {
+          problems.add(journal.getFileName() + " line " + line + ": '" + fields[4] + "' is not a schedule (a whole number)");
+        }
+      }
+      lineStart = lineEnd + 1;
+      lineEnd = text.indexOf('\n', lineStart);
+    }
+  }
+
+  /**
+   * Applies records to deck in order. Only the cards due at a time some record
+   * starts from are indexed, by due key, so an empty or short journal costs one
+   * pass over the due keys, and the text of a card is only looked at (and, for a
+   * LazyFlashcard, read from the file) when its due date matches a record.
+   */
+  private static void apply(List<Record> records, List<Flashcard> deck) {
+    if (records.isEmpty()) {
+      return;
+    }
+    long[] oldDueKeys = new long[records.size()];
+    for (int i = 0; i < oldDueKeys.length; i++) {
+      oldDueKeys[i] = records.get(i).oldDueKey;
+    }
+    Arrays.sort(oldDueKeys);
+    HashMap<Long, ArrayDeque<Integer>> positions = new HashMap<Long, ArrayDeque<Integer>>();   // due key -> where cards due then are in deck
+    for (int i = 0; i < deck.size(); i++) {
+      long dueKey = deck.get(i).getDueKey();
+      if (Arrays.binarySearch(oldDueKeys, dueKey) >= 0) {
+        positions.computeIfAbsent(dueKey, k -> new ArrayDeque<Integer>()).add(i);
+      }
+    }
+    for (Record record : records) {
+      ArrayDeque<Integer> candidates = positions.get(record.oldDueKey);
+      if (candidates == null) {
+        continue;
+      }
+      Iterator<Integer> iterator = candidates.iterator();
+      while (iterator.hasNext()) {
+        int position = iterator.next();
+        Flashcard flashcard = deck.get(position);
+        if (flashcard.getDueNanos() != record.oldDueNanos) {
+          continue;
+        }
+        String[] texts = flashcard.getTexts();                                        // one text lookup for a LazyFlashcard
+        if (texts[0].equals(record.graded.getFrontText()) && texts[1].equals(record.graded.getBackText())) {
+          iterator.remove();
+          deck.set(position, record.graded);
+          long dueKey = record.graded.getDueKey();
+          if (Arrays.binarySearch(oldDueKeys, dueKey) >= 0) {                        // a later record may grade it again
+            positions.computeIfAbsent(dueKey, k -> new ArrayDeque<Integer>()).add(position);
+          }
+          break;
+        }
+      }
+    }
+  }
+
+  static Path journalPath(String deckPath) {
+    return Paths.get(deckPath + ".journal").toAbsolutePath();
+  }
+
+  static Path oldJournalPath(String deckPath) {
+    return Paths.get(deckPath + ".journal.old").toAbsolutePath();
+  }
+
+  /** Moves the full journal aside, starts a fresh one and folds the old one into the deck in the background. */
+  private void rotate() throws IOException {
+    channel.close();
+    Files.move(journalPath, oldJournalPath);
+    channel = open(journalPath);
+    compactor.execute(this::compact);
+  }
+
+  /**
+   * Loads the deck, applies the old journal and writes the result as the new deck
+   * file, then deletes the old journal. DeckWriter replaces the deck in one rename,
+   * so a crash at any point leaves a deck that replays to the same cards. Records
+   * that can not be read were reported when the deck was loaded and are skipped;
+   * an error is reported by the next append or sync.
+   */
+  private void compact() {
+    synchronized (deckLock) {
+      try {
+        if (!Files.exists(oldJournalPath)) {
+          return;                                        // a save wrote these reviews first
+        }
+        String deck = deckPath.toString();
+        List<Flashcard> cards = new DeckReader().read(deck);
+        List<Record> records = new ArrayList<Record>();
+        read(oldJournalPath, records, new ArrayList<String>());
+        apply(records, cards);
+        cards.sort(null);                                // keep the deck in due order, like saveFlashcards writes it
+        DeckWriter.write(cards.iterator(), deck);
+        deckBytes = Files.size(deckPath);
+        Files.delete(oldJournalPath);
+      } catch (IOException e) {
+        synchronized (this) {
+          failure = new IOException("Could not compact the review journal: " + e.getMessage(), e);
+        }
+      }
+    }
+  }
+
+  private void flushInBackground() {
+    synchronized (this) {
+      try {
+        sync();
+      } catch (IOException e) {
+        failure = e;
+      }
+    }
+  }
+
+  private void throwFailure() throws IOException {
+    if (failure != null) {
+      IOException e = failure;
+      failure = null;
+      throw e;
+    }
+  }
+
+  private static FileChannel open(Path path) throws IOException {
+    return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+  }
+
+  /** Makes a thread that does not keep the program running, for background executors. */
+  static Thread daemon(Runnable runnable, String name) {
+    Thread thread = new Thread(runnable, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  public static void main(String[] args) throws IOException {
+    Path directory = Files.createTempDirectory("journal");
+    String deckPath = directory.resolve("deck.txt").toString();
+    List<Flashcard> cards = new ArrayList<Flashcard>();
+    cards.add(new Flashcard("2021-11-29T12:07", "Tirana", "Albania"));
+    cards.add(new Flashcard("2021-11-29T12:08", "Zagreb", "Croatia"));
+    DeckWriter.write(cards.iterator(), deckPath);
+
+    // test for a save to the deck's file, which empties the journal
+    ReviewJournal journal = new ReviewJournal(deckPath, 1, 1000, Long.MAX_VALUE);
+    LocalDateTime oldDueDate = cards.get(0).getDueDate();
+    cards.get(0).setDueDate(LocalDateTime.parse("2021-11-30T12:07"));
+    journal.append(cards.get(0), oldDueDate);
+    journal.finishSave(journal.startSave(), cards.iterator());
+    System.err.println("This should print out 0, false: " + Files.size(journalPath(deckPath)) + ", " + Files.exists(oldJournalPath(deckPath)));
+    journal.close();
+
+    // test for a compaction and a save at the same time: the save is never overwritten
+    journal = new ReviewJournal(deckPath, 1, 1000, 0);
+    oldDueDate = cards.get(1).getDueDate();
+    cards.get(1).setDueDate(LocalDateTime.parse("2021-11-30T12:08"));
+    journal.append(cards.get(1), oldDueDate);                     // moves the journal aside and starts compacting it
+    oldDueDate = cards.get(0).getDueDate();
+    cards.get(0).setDueDate(LocalDateTime.parse("2021-12-01T12:07"));
+    journal.append(cards.get(0), oldDueDate);
+    journal.finishSave(journal.startSave(), cards.iterator());
+    journal.close();
+    List<Flashcard> saved = new DeckReader().read(deckPath);
+    replay(deckPath, saved);
+    saved.sort(null);
+    System.err.println("This should print out [2021-11-30T12:08 Zagreb, 2021-12-01T12:07 Tirana]: [" + saved.get(0).getDueDate() + " "
+        + saved.get(0).getFrontText() + ", " + saved.get(1).getDueDate() + " " + saved.get(1).getFrontText() + "]");
+  }
+}
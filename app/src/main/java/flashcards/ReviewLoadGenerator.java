@@ -0,0 +1,153 @@
+package flashcards;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a ReviewServer with many clients at once and reports how many requests it
+ * handled per second and how long they took. Each client asks for the next due card,
+ * grades it (right 80% of the time) and starts over. Without --url it starts a
+ * server on localhost with a generated deck of --cards cards that are all due.
+ *
+ *   java -cp app/target/classes flashcards.ReviewLoadGenerator [--url http://localhost:8080] [--deck name]
+ *       [--clients 64] [--seconds 10] [--cards 1000000]
+ * @author Aris Karamustafic
+ */
+
+public class ReviewLoadGenerator {
+
+  private final HttpClient client;
+  private final String deckUrl;
+  private final LatencyHistogram nextLatency = new LatencyHistogram("next");
+  private final LatencyHistogram gradeLatency = new LatencyHistogram("grade");
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong empty = new AtomicLong();          // next requests that found no due card
+
+  public ReviewLoadGenerator(String baseUrl, String deck) {
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    deckUrl = baseUrl + "/decks/" + deck;
+  }
+
+  /** Runs clients clients for seconds seconds, then prints what they saw. */
+  public void run(int clients, int seconds) throws InterruptedException {
+    ExecutorService pool = Executors.newFixedThreadPool(clients);
+    long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    for (int i = 0; i < clients; i++) {
+      long seed = i;
+      pool.execute(() -> review(end, new Random(seed)));
+    }
+    pool.shutdown();
+    pool.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+    long requests = nextLatency.getCount() + gradeLatency.getCount();
+    System.out.println(String.format("%d clients, %d s: %d requests, %.0f requests/s, %d found no due card, %d failed",
+        clients, seconds, requests, requests / (double) seconds, empty.get(), failures.get()));
+    System.out.println(nextLatency);
+    System.out.println(gradeLatency);
+  }
+
+  /** One client: asks for a card and grades it, until end. */
+  private void review(long end, Random random) {
+    HttpRequest next = HttpRequest.newBuilder(URI.create(deckUrl + "/next")).GET().build();
+    while (System.nanoTime() < end) {
+      try {
+        long start = System.nanoTime();
+        HttpResponse<String> card = client.send(next, HttpResponse.BodyHandlers.ofString());
+        nextLatency.recordSince(start);
+        if (card.statusCode() != 200) {
+          failures.incrementAndGet();
+          continue;
+        }
+        if (card.body().isEmpty()) {
+          empty.incrementAndGet();
+          continue;
+        }
+        String id = card.body().substring(0, card.body().indexOf('\t'));
+        HttpRequest grade = HttpRequest.newBuilder(URI.create(deckUrl + "/grade?id=" + id + "&correct=" + (random.nextInt(5) > 0)))
+            .POST(HttpRequest.BodyPublishers.noBody()).build();
+        start = System.nanoTime();
+        HttpResponse<Void> graded = client.send(grade, HttpResponse.BodyHandlers.discarding());
+        gradeLatency.recordSince(start);
+        if (graded.statusCode() != 204) {
+          failures.incrementAndGet();
+        }
+      } catch (IOException e) {
+        failures.incrementAndGet();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /** Writes a deck of count cards that are all due, in a new temporary directory. */
+  private static Path generateDeck(int count) throws IOException {
+    Path deck = Files.createTempDirectory("flashcards").resolve("load.txt");
+    LocalDateTime start = LocalDateTime.now().minusDays(30);
+    List<Flashcard> cards = new ArrayList<Flashcard>(count);
+    for (int i = 0; i < count; i++) {
+      cards.add(new Flashcard(start.plusSeconds(i % (29 * 24 * 3600)), "Question " + i, "Answer " + i));
+    }
+    Collections.sort(cards);
+    DeckWriter.write(cards.iterator(), deck.toString());
+    return deck;
+  }
+
+  public static void main(String[] args) throws Exception {
+    String url = null;
+    String deck = "load";
+    int clients = 64;
+    int seconds = 10;
+    int cards = 1_000_000;
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (args[i].equals("--url")) {
+        url = args[i + 1];
+      } else if (args[i].equals("--deck")) {
+        deck = args[i + 1];
+      } else if (args[i].equals("--clients")) {
+        clients = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--seconds")) {
+        seconds = Integer.parseInt(args[i + 1]);
+      } else if (args[i].equals("--cards")) {
+        cards = Integer.parseInt(args[i + 1]);
+      } else {
+        System.err.println("Unknown option " + args[i]);
+        return;
+      }
+    }
+    ReviewServer server = null;
+    Path deckPath = null;
+    if (url == null) {                                              // test against a server of our own on localhost
+      deckPath = generateDeck(cards);
+      ReviewServer.preferNoDelay();
+      server = new ReviewServer(0, List.of(deckPath.toString()));
+      server.start();
+      url = "http://localhost:" + server.getPort();
+      deck = "load";
+    }
+    try {
+      new ReviewLoadGenerator(url, deck).run(clients, seconds);
+    } finally {
+      if (server != null) {
+        server.stop();
+        Files.deleteIfExists(ReviewJournal.journalPath(deckPath.toString()));
+        Files.deleteIfExists(ReviewJournal.oldJournalPath(deckPath.toString()));
+        Files.deleteIfExists(deckPath);
+        Files.deleteIfExists(deckPath.getParent());
+      }
+    }
+  }
+}
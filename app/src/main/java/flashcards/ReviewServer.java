@@ -0,0 +1,443 @@
+package flashcards;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serves reviews of one or more decks over HTTP, so that many clients can study
+ * from one process. Every deck has its own queue, journal and lock, and is named
+ * after its file (geography.txt is "geography"). Answers are plain text, one card
+ * per line, with tabs between the fields:
+ *
+ *   GET  /decks                            every deck, as name, number of cards
+ *   GET  /decks/{name}/next?limit=N        up to N (1 to MAX_LIMIT, default 1) due cards, as id, due date, front, back
+ *   POST /decks/{name}/grade?id=I&correct=true|false
+ *   POST /decks/{name}/save                writes the deck back to its file
+ *
+ * A card handed out by next is out of the queue until it is graded; if it is not
+ * graded within LEASE_MINUTES it goes back, and its id stops working; expired cards
+ * are taken back every LEASE_CHECK_SECONDS, and before every next. Requests are
+ * handled on virtual threads when the JDK has them (21 and later), otherwise on a
+ * fixed pool of threads. The locks are ReentrantLocks rather than synchronized
+ * blocks, so a virtual thread waiting for a deck does not hold on to its carrier.
+ * @author Aris Karamustafic
+ */
+
+public class ReviewServer {
+
+  public static final int DEFAULT_PORT = 8080;
+  public static final long LEASE_MINUTES = 10;
+  public static final long LEASE_CHECK_SECONDS = 30;
+  public static final int MAX_LIMIT = 1000;          // the most cards one next hands out; a larger limit is a bad request
+
+  /**
+   * Turns off Nagle's algorithm for the JDK's HTTP server, unless the property is
+   * already set: answers are small, so without this every one waits for a delayed
+   * ACK. The JDK reads it once, so this must be called before the first server is
+   * made; main and ReviewLoadGenerator do.
+   */
+  static void preferNoDelay() {
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final ScheduledExecutorService leaseChecker;   // takes back cards that nobody graded in time, even if nobody asks for more
+  private final Map<String, Deck> decks;          // by name, in the order they were given
+  private final Clock clock;
+  private volatile SchedulingPolicy policy = new FixedIntervalPolicy();
+
+  /** A deck being served, with the cards that clients are reviewing right now. */
+  private static class Deck {
+    final String filePath;
+    final FlashcardPriorityQueue flashcards = new FlashcardPriorityQueue();
+    final LinkedHashMap<Long, Lease> handedOut = new LinkedHashMap<Long, Lease>();   // by id, oldest first
+    final ReentrantLock lock = new ReentrantLock();
+    ReviewJournal journal;
+    long nextId;
+
+    Deck(String filePath) {
+      this.filePath = filePath;
+    }
+  }
+
+  /** A card handed out to a client, and when it goes back to the queue if it is not graded. */
+  private static class Lease {
+    final Flashcard flashcard;
+    final LocalDateTime expires;
+
+    Lease(Flashcard flashcard, LocalDateTime expires) {
+      this.flashcard = flashcard;
+      this.expires = expires;
+    }
+  }
+
+  /** Loads the decks at deckPaths and prepares to serve them on port (0 picks a free port). */
+  public ReviewServer(int port, List<String> deckPaths) throws IOException {
+    this(port, deckPaths, Clock.systemDefaultZone());
+  }
+
+  public ReviewServer(int port, List<String> deckPaths, Clock clock) throws IOException {
+    this.clock = clock;
+    decks = new LinkedHashMap<String, Deck>();
+    for (String deckPath : deckPaths) {
+      String name = Paths.get(deckPath).getFileName().toString().replaceFirst("\\.[^.]*$", "");
+      if (decks.containsKey(name)) {
+        throw new IllegalArgumentException("Two decks are called " + name);
+      }
+      Deck deck = new Deck(deckPath);
+      DeckReader deckReader = new DeckReader();
+      List<Flashcard> cards = deckReader.read(deckPath);
+      List<String> journalProblems = ReviewJournal.replay(deckPath, cards);
+      deck.flashcards.addAll(cards);
+      for (String problem : deckReader.getProblems()) {
+        System.out.println("Skipped " + deckPath + " " + problem);
+      }
+      for (String problem : journalProblems) {
+        System.out.println("Skipped " + problem);
+      }
+      deck.journal = new ReviewJournal(deckPath);
+      decks.put(name, deck);
+    }
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext("/decks", this::handle);
+    executor = newExecutor();
+    server.setExecutor(executor);
+    leaseChecker = Executors.newSingleThreadScheduledExecutor(r -> ReviewJournal.daemon(r, "lease-checker"));
+  }
+
+  /**
+   * Returns an executor that runs every request on a new virtual thread, found by
+   * reflection so that the program still builds and runs on JDK 17, where it falls
+   * back to a fixed pool.
+   */
+  static ExecutorService newExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(Math.max(8, 4 * Runtime.getRuntime().availableProcessors()));
+    }
+  }
+
+  /** Sets the policy that decides when graded cards are due again (by default a FixedIntervalPolicy). */
+  public void setSchedulingPolicy(SchedulingPolicy policy) {
+    this.policy = policy;
+  }
+
+  public void start() {
+    server.start();
+    leaseChecker.scheduleWithFixedDelay(this::reclaimExpiredLeases, LEASE_CHECK_SECONDS, LEASE_CHECK_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /** Returns the port the server listens on. */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /** Stops taking requests, puts the cards that are handed out back, and closes the journals. */
+  public void stop() {
+    server.stop(0);
+    leaseChecker.shutdown();
+    executor.shutdown();
+    try {
+      executor.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (Deck deck : decks.values()) {
+      deck.lock.lock();
+      try {
+        for (Lease lease : deck.handedOut.values()) {
+          deck.flashcards.add(lease.flashcard);
+        }
+        deck.handedOut.clear();
+        deck.journal.close();
+      } catch (IOException e) {
+        System.out.println("Could not log the last reviews of " + deck.filePath + ": " + e.getMessage());
+      } finally {
+        deck.lock.unlock();
+      }
+    }
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      exchange.getRequestBody().close();          // reads the request to its end before answering: the JDK server closes a connection
+                                                  // whose request is not read when the answer is sent, and a client reusing it gets no answer
+      String[] path = exchange.getRequestURI().getRawPath().split("/");   // "", "decks", name, action
+      for (int i = 0; i < path.length; i++) {
+        path[i] = URLDecoder.decode(path[i].replace("+", "%2B"), StandardCharsets.UTF_8);    // each part on its own, so a name may hold an escaped /
+      }
+      Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+      String method = exchange.getRequestMethod();
+      if (path.length == 2) {
+        if (!method.equals("GET")) {
+          respond(exchange, 405, "Use GET for /decks\n");
+        } else {
+          respond(exchange, 200, listDecks());
+        }
+        return;
+      }
+      Deck deck = (path.length == 4) ? decks.get(path[2]) : null;
+      if (deck == null) {
+        respond(exchange, 404, "No such deck or action: " + exchange.getRequestURI().getPath() + "\n");
+      } else if (path[3].equals("next") && method.equals("GET")) {
+        int limit = Integer.parseInt(query.getOrDefault("limit", "1"));
+        if (limit < 1 || limit > MAX_LIMIT) {
+          respond(exchange, 400, "limit must be between 1 and " + MAX_LIMIT + "\n");
+        } else {
+          respond(exchange, 200, next(deck, limit));
+        }
+      } else if (path[3].equals("grade") && method.equals("POST")) {
+        if (!query.containsKey("id") || !query.containsKey("correct")) {
+          respond(exchange, 400, "grade needs an id and correct=true or correct=false\n");
+        } else if (grade(deck, Long.parseLong(query.get("id")), Boolean.parseBoolean(query.get("correct")))) {
+          respond(exchange, 204, "");
+        } else {
+          respond(exchange, 404, "No card with id " + query.get("id") + " is waiting for a grade; it may have expired\n");
+        }
+      } else if (path[3].equals("save") && method.equals("POST")) {
+        respond(exchange, 200, "Saved " + save(deck) + " cards\n");
+      } else if (path[3].equals("next") || path[3].equals("grade") || path[3].equals("save")) {
+        respond(exchange, 405, "Use GET for next and POST for grade and save\n");
+      } else {
+        respond(exchange, 404, "No such action: " + path[3] + "\n");
+      }
+    } catch (NumberFormatException e) {
+      respond(exchange, 400, "Not a number: " + e.getMessage() + "\n");
+    } catch (IllegalArgumentException e) {
+      respond(exchange, 400, e.getMessage() + "\n");                   // e.g. a bad escape in the path or query
+    } catch (IOException | RuntimeException e) {
+      respond(exchange, 500, e + "\n");                                 // without an answer the client would only see the connection close
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private String listDecks() {
+    StringBuilder answer = new StringBuilder();
+    for (Map.Entry<String, Deck> entry : decks.entrySet()) {
+      Deck deck = entry.getValue();
+      deck.lock.lock();
+      try {
+        answer.append(entry.getKey()).append('\t').append(deck.flashcards.size() + deck.handedOut.size()).append('\n');
+      } finally {
+        deck.lock.unlock();
+      }
+    }
+    return answer.toString();
+  }
+
+  /** Hands out up to limit (at most MAX_LIMIT) due cards, earliest first. */
+  private String next(Deck deck, int limit) {
+    LocalDateTime timeNow = LocalDateTime.now(clock);
+    ArrayList<Flashcard> due = new ArrayList<Flashcard>();
+    StringBuilder answer = new StringBuilder();
+    deck.lock.lock();
+    try {
+      reclaimExpired(deck, timeNow);                                    // cards nobody graded in time go back first
+      deck.flashcards.drainBefore(new Flashcard(timeNow, "", ""), due, limit);
+      for (Flashcard flashcard : due) {
+        long id = deck.nextId++;
+        deck.handedOut.put(id, new Lease(flashcard, timeNow.plusMinutes(LEASE_MINUTES)));
+        flashcard.appendDueDate(answer.append(id).append('\t')).append('\t')
+            .append(flashcard.getFrontText()).append('\t').append(flashcard.getBackText()).append('\n');
+      }
+    } finally {
+      deck.lock.unlock();
+    }
+    return answer.toString();
+  }
+
+  /** Puts the cards of deck whose lease ran out by timeNow back in its queue; the caller must hold the deck's lock. */
+  private static void reclaimExpired(Deck deck, LocalDateTime timeNow) {
+    Iterator<Lease> leases = deck.handedOut.values().iterator();
+    while (leases.hasNext()) {                                          // the leases are oldest first, so this stops at the first live one
+      Lease lease = leases.next();
+      if (lease.expires.isAfter(timeNow)) {
+        break;
+      }
+      deck.flashcards.add(lease.flashcard);
+      leases.remove();
+    }
+  }
+
+  /** Takes back the expired cards of every deck, for the lease checker. */
+  private void reclaimExpiredLeases() {
+    LocalDateTime timeNow = LocalDateTime.now(clock);
+    for (Deck deck : decks.values()) {
+      deck.lock.lock();
+      try {
+        reclaimExpired(deck, timeNow);
+      } finally {
+        deck.lock.unlock();
+      }
+    }
+  }
+
+  /** Grades the card handed out as id with the scheduling policy. Returns
+   * false if no card with that id is waiting for a grade.
+   */
+  private boolean grade(Deck deck, long id, boolean correct) throws IOException {
+    LocalDateTime timeNow = LocalDateTime.now(clock);
+    deck.lock.lock();
+    try {
+      Lease lease = deck.handedOut.remove(id);
+      if (lease == null) {
+        return false;
+      }
+      Flashcard flashcard = lease.flashcard;
+      LocalDateTime oldDueDate = flashcard.getDueDate();
+      policy.reschedule(flashcard, correct, timeNow);
+      deck.flashcards.add(flashcard);
+      deck.journal.append(flashcard, oldDueDate);
+      return true;
+    } finally {
+      deck.lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the deck, including the cards that are handed out, back to its file, and
+   * empties its journal. Returns the number of cards. Only copying the cards holds
+   * the deck's lock; the file is written and synced while the deck keeps serving.
+   */
+  private int save(Deck deck) throws IOException {
+    ArrayList<Flashcard> snapshot;
+    long save;
+    deck.lock.lock();
+    try {
+      ArrayList<Flashcard> handedOut = new ArrayList<Flashcard>();
+      for (Lease lease : deck.handedOut.values()) {
+        handedOut.add(lease.flashcard);
+      }
+      Collections.sort(handedOut);
+      snapshot = new ArrayList<Flashcard>(deck.flashcards.size() + handedOut.size());
+      for (Iterator<Flashcard> cards = merge(deck.flashcards.orderedIterator(), handedOut.iterator()); cards.hasNext(); ) {
+        snapshot.add(copy(cards.next()));                               // copies, since a card handed out may be graded during the write
+      }
+      save = deck.journal.startSave();                                  // the reviews after this go to a new journal
+    } finally {
+      deck.lock.unlock();
+    }
+    deck.journal.finishSave(save, snapshot.iterator());
+    return snapshot.size();
+  }
+
+  private static Flashcard copy(Flashcard flashcard) {
+    Flashcard copy = new Flashcard(flashcard.getDueKey(), flashcard.getDueNanos(), flashcard.getFrontText(), flashcard.getBackText());
+    copy.setSchedule(flashcard.getSchedule());
+    return copy;
+  }
+
+  /** Merges two iterators that are each in due-date order into one. */
+  private static Iterator<Flashcard> merge(Iterator<Flashcard> first, Iterator<Flashcard> second) {
+    return new Iterator<Flashcard>() {
+      private Flashcard nextFirst = first.hasNext() ? first.next() : null;
+      private Flashcard nextSecond = second.hasNext() ? second.next() : null;
+
+      public boolean hasNext() {
+        return nextFirst != null || nextSecond != null;
+      }
+
+      public Flashcard next() {
+        Flashcard flashcard;
+        if (nextFirst != null && (nextSecond == null || nextFirst.compareTo(nextSecond) <= 0)) {
+          flashcard = nextFirst;
+          nextFirst = first.hasNext() ? first.next() : null;
+        } else if (nextSecond != null) {
+          flashcard = nextSecond;
+          nextSecond = second.hasNext() ? second.next() : null;
+        } else {
+          throw new NoSuchElementException();
+        }
+        return flashcard;
+      }
+    };
+  }
+
+  private static Map<String, String> query(String rawQuery) {
+    HashMap<String, String> parameters = new HashMap<String, String>();
+    if (rawQuery == null) {
+      return parameters;
+    }
+    for (String pair : rawQuery.split("&")) {
+      int equals = pair.indexOf('=');
+      if (equals > 0) {
+        parameters.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+            URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);      // -1: no body
+    if (bytes.length > 0) {
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * Serves the given decks until the process is stopped:
+   *   java -cp app/target/classes flashcards.ReviewServer [--port 8080] [--policy fixed|leitner|sm2] deck.txt [more decks...]
+   */
+  public static void main(String[] args) {
+    int port = DEFAULT_PORT;
+    List<String> deckPaths = new ArrayList<String>();
+    String policyName = "fixed";
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--port") && i + 1 < args.length) {
+        port = Integer.parseInt(args[i + 1]);
+        i++;
+      } else if (args[i].equals("--policy") && i + 1 < args.length) {
+        policyName = args[i + 1];
+        i++;
+      } else {
+        deckPaths.add(args[i]);
+      }
+    }
+    if (deckPaths.isEmpty()) {
+      System.err.println("Usage: ReviewServer [--port 8080] [--policy fixed|leitner|sm2] deck.txt [more decks...]");
+      return;
+    }
+    try {
+      SchedulingPolicy policy = SchedulingPolicy.forName(policyName);         // a wrong name stops us before the decks are opened
+      preferNoDelay();
+      ReviewServer server = new ReviewServer(port, deckPaths);
+      server.setSchedulingPolicy(policy);
+      Runtime.getRuntime().addShutdownHook(new Thread(server::stop));    // Ctrl-C commits the journals
+      server.start();
+      System.out.println("Serving " + server.decks.keySet() + " on http://localhost:" + server.getPort() + "/decks");
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("Could not start the server: " + e.getMessage());
+    }
+  }
+}
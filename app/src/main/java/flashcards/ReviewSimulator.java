@@ -0,0 +1,215 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates many learners studying their decks every day under a scheduling
+ * policy, to see how many reviews a day each policy causes before switching a
+ * server to it. Every learner gets newPerDay new cards a day until their deck of
+ * cards cards is used up, and studies once a day until nothing is due within a
+ * few minutes, spending REVIEW_SECONDS on a card. Whether a card is remembered
+ * follows a forgetting curve: the chance is 90% after the card's stability has
+ * passed since it was last seen, and the stability grows with every right answer
+ * that came after a long enough wait. A card is always wrong the first time.
+ * Learners are split between the threads of a fork-join pool; each has its own
+ * FlashcardPriorityQueue and random numbers, so a run gives the same counts on
+ * any number of threads.
+ *
+ *   java -cp app/target/classes flashcards.ReviewSimulator [--policy fixed|leitner|sm2|all] [--learners 1000]
+ *       [--cards 1000] [--new-per-day 20] [--days 60] [--threads N] [--seed 1]
+ * @author Aris Karamustafic
+ */
+
+public class ReviewSimulator {
+
+  public static final int REVIEW_SECONDS = 8;                 // how long a learner takes for one card
+  private static final int LEARNERS_PER_TASK = 16;            // a task with this many learners or fewer is not split
+  private static final long WAIT_MILLIS = 10 * 60 * 1000;     // a learner waits up to 10 minutes for a card to come back
+  private static final long DAY_MILLIS = 24 * 3600 * 1000;
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 9, 0);    // learners study at 9 every morning
+
+  private final SchedulingPolicy policy;
+  private final int cards;
+  private final int newPerDay;
+  private final int days;
+  private final long seed;
+
+  /** A card of the simulation, with what the learner's memory holds of it. */
+  private static class SimulatedCard extends Flashcard {
+    double stability;                   // days after which the learner still remembers the card 90% of the time
+    long lastSeen = -1;                 // due key of the last review, -1 if the card is new
+
+    SimulatedCard(LocalDateTime dueDate) {
+      super(dueDate, "", "");
+    }
+  }
+
+  public ReviewSimulator(SchedulingPolicy policy, int cards, int newPerDay, int days, long seed) {
+    this.policy = policy;
+    this.cards = cards;
+    this.newPerDay = newPerDay;
+    this.days = days;
+    this.seed = seed;
+  }
+
+  /** Simulates learners learners on pool and returns how many reviews there were on each day. */
+  public long[] run(int learners, ForkJoinPool pool) {
+    return pool.invoke(new Learners(0, learners));
+  }
+
+  /** The learners from first up to (not including) last, split in halves until there are few enough. */
+  private class Learners extends RecursiveTask<long[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final int first;
+    private final int last;
+
+    Learners(int first, int last) {
+      this.first = first;
+      this.last = last;
+    }
+
+    @Override
+    protected long[] compute() {
+      if (last - first <= LEARNERS_PER_TASK) {
+        long[] reviews = new long[days];
+        for (int learner = first; learner < last; learner++) {
+          simulate(learner, reviews);
+        }
+        return reviews;
+      }
+      int middle = (first + last) >>> 1;
+      Learners left = new Learners(first, middle);
+      left.fork();
+      long[] reviews = new Learners(middle, last).compute();
+      long[] leftReviews = left.join();
+      for (int day = 0; day < days; day++) {
+        reviews[day] += leftReviews[day];
+      }
+      return reviews;
+    }
+  }
+
+  /** Runs every day of one learner and adds their reviews to reviews. */
+  private void simulate(int learner, long[] reviews) {
+    SplittableRandom random = new SplittableRandom(seed * 1_000_003 + learner);
+    double firstStability = 0.5 + 1.5 * random.nextDouble();    // how good this learner's memory is, in days
+    double growth = 1.8 + random.nextDouble();                   // and how much a well spaced review helps
+    FlashcardPriorityQueue queue = new FlashcardPriorityQueue();
+    for (int i = 0; i < cards; i++) {
+      SimulatedCard card = new SimulatedCard(START.plusDays(i / newPerDay));    // new cards become due day by day
+      card.stability = firstStability;
+      queue.add(card);
+    }
+    for (int day = 0; day < days; day++) {
+      LocalDateTime timeNow = START.plusDays(day);
+      long now = Flashcard.toDueKey(timeNow);
+      while (!queue.isEmpty() && queue.peek().getDueKey() <= now + WAIT_MILLIS) {
+        SimulatedCard card = (SimulatedCard) queue.poll();
+        if (card.getDueKey() > now) {                              // the learner waits for a card they got wrong
+          now = card.getDueKey();
+          timeNow = card.getDueDate();
+        }
+        boolean correct = false;
+        if (card.lastSeen >= 0) {
+          double elapsedDays = (now - card.lastSeen) / (double) DAY_MILLIS;
+          correct = random.nextDouble() < Math.pow(0.9, elapsedDays / card.stability);
+          if (correct) {
+            card.stability *= 1 + (growth - 1) * Math.min(1, elapsedDays / card.stability);    // cramming does not help much
+          } else {
+            card.stability = firstStability;
+          }
+        }
+        card.lastSeen = now;
+        policy.reschedule(card, correct, timeNow);
+        queue.add(card);
+        reviews[day]++;
+        now += REVIEW_SECONDS * 1000;
+        timeNow = timeNow.plusSeconds(REVIEW_SECONDS);
+      }
+    }
+  }
+
+  public static void main(String[] args) {
+    String policyName = "all";
+    int learners = 1000;
+    int cards = 1000;
+    int newPerDay = 20;
+    int days = 60;
+    int threads = ForkJoinPool.getCommonPoolParallelism();
+    long seed = 1;
+    try {
+      for (int i = 0; i + 1 < args.length; i += 2) {
+        if (args[i].equals("--policy")) {
+          policyName = args[i + 1];
+        } else if (args[i].equals("--learners")) {
+          learners = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("--cards")) {
+          cards = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("--new-per-day")) {
+          newPerDay = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("--days")) {
+          days = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("--threads")) {
+          threads = Integer.parseInt(args[i + 1]);
+        } else if (args[i].equals("--seed")) {
+          seed = Long.parseLong(args[i + 1]);
+        } else {
+          System.err.println("Unknown option " + args[i]);
+          return;
+        }
+      }
+    } catch (NumberFormatException e) {
+      System.err.println("Not a number: " + e.getMessage());
+      return;
+    }
+    if (learners < 1 || cards < 1 || newPerDay < 1 || days < 1) {
+      System.err.println("--learners, --cards, --new-per-day and --days must be at least 1");
+      return;
+    }
+    List<SchedulingPolicy> policies = new ArrayList<SchedulingPolicy>();
+    try {
+      for (String name : policyName.equals("all") ? new String[] {"fixed", "leitner", "sm2"} : new String[] {policyName}) {
+        policies.add(SchedulingPolicy.forName(name));
+      }
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      return;
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+    System.out.println(String.format("%d learners with %d cards each, %d new a day, for %d days on %d threads",
+        learners, cards, newPerDay, days, pool.getParallelism()));
+    long[][] reviews = new long[policies.size()][];
+    StringBuilder header = new StringBuilder(String.format("%5s", "day"));
+    for (int p = 0; p < policies.size(); p++) {
+      long start = System.nanoTime();
+      reviews[p] = new ReviewSimulator(policies.get(p), cards, newPerDay, days, seed).run(learners, pool);
+      long total = 0;
+      int busiest = 0;
+      for (int day = 0; day < days; day++) {
+        total += reviews[p][day];
+        busiest = (reviews[p][day] > reviews[p][busiest]) ? day : busiest;
+      }
+      System.out.println(String.format("%-8s %d reviews in %.1f s, busiest day %d with %d (%.1f per learner)",
+          policies.get(p), total, (System.nanoTime() - start) / 1e9, busiest + 1, reviews[p][busiest],
+          reviews[p][busiest] / (double) learners));
+      header.append(String.format(" %14s", policies.get(p)));
+    }
+    pool.shutdown();
+    System.out.println();
+    System.out.println(header + "   (reviews that day)");
+    for (int day = 0; day < days; day++) {
+      StringBuilder line = new StringBuilder(String.format("%5d", day + 1));
+      for (int p = 0; p < policies.size(); p++) {
+        line.append(String.format(" %14d", reviews[p][day]));
+      }
+      System.out.println(line);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+
+/**
+ * The SM-2 algorithm of SuperMemo, for right-or-wrong grades. Every card has an
+ * ease, starting at 2.5. A card that is right is shown again after 1 day, then 6
+ * days, then each time after its last interval times its ease, and its ease goes
+ * up by 0.1; a card that is wrong starts over, is shown again in a minute, and its
+ * ease goes down by 0.54 (SM-2's grade 1), but never below 1.3.
+ *
+ * The card's schedule holds the interval in days in its low 32 bits, the ease in
+ * hundredths in the next 16 and the number of right answers in a row above that.
+ * A schedule this policy can not have written (e.g. a Leitner box, whose ease
+ * would be 0) is read as a new card's, so a deck can switch policies.
+ * @author Aris Karamustafic
+ */
+
+public class SM2Policy implements SchedulingPolicy {
+
+  public static final int INITIAL_EASE = 250;       // in hundredths
+  public static final int MINIMUM_EASE = 130;
+  private static final int CORRECT_EASE_CHANGE = 10;      // SM-2's change for a grade of 5, 0.1 - (5 - q) * (0.08 + (5 - q) * 0.02)
+  private static final int INCORRECT_EASE_CHANGE = -54;   // and for a grade of 1
+  private static final int MAXIMUM_INTERVAL_DAYS = 36500;
+
+  @Override
+  public void reschedule(Flashcard flashcard, boolean correct, LocalDateTime timeNow) {
+    long schedule = flashcard.getSchedule();
+    if (!isSchedule(schedule)) {
+      schedule = 0;                                 // written by another policy, so the card starts over
+    }
+    int interval = intervalDays(schedule);
+    int ease = (schedule == 0) ? INITIAL_EASE : ease(schedule);
+    int repetitions = repetitions(schedule);
+    if (correct) {
+      repetitions++;
+      if (repetitions == 1) {
+        interval = 1;
+      } else if (repetitions == 2) {
+        interval = 6;
+      } else {
+        interval = (int) Math.min(Math.round(interval * ease / 100.0), MAXIMUM_INTERVAL_DAYS);
+      }
+      ease += CORRECT_EASE_CHANGE;
+      flashcard.setDueDate(timeNow.plusDays(interval));
+    } else {
+      repetitions = 0;
+      interval = 0;
+      ease = Math.max(ease + INCORRECT_EASE_CHANGE, MINIMUM_EASE);
+      flashcard.setDueDate(timeNow.plusMinutes(1));
+    }
+    flashcard.setSchedule(schedule(interval, Math.min(ease, 0xFFFF), Math.min(repetitions, 0x7FFF)));
+  }
+
+  /** Returns true if schedule is 0 or one that reschedule could have written. */
+  static boolean isSchedule(long schedule) {
+    return schedule == 0 || (schedule > 0 && intervalDays(schedule) >= 0 && intervalDays(schedule) <= MAXIMUM_INTERVAL_DAYS
+        && ease(schedule) >= MINIMUM_EASE);
+  }
+
+  static long schedule(int intervalDays, int ease, int repetitions) {
+    return ((long) repetitions << 48) | ((long) ease << 32) | intervalDays;
+  }
+
+  static int intervalDays(long schedule) {
+    return (int) schedule;
+  }
+
+  static int ease(long schedule) {
+    return (int) (schedule >>> 32) & 0xFFFF;
+  }
+
+  static int repetitions(long schedule) {
+    return (int) (schedule >>> 48);
+  }
+
+  @Override
+  public String toString() {
+    return "sm2";
+  }
+
+  public static void main(String[] args) {
+    SM2Policy policy = new SM2Policy();
+    Flashcard flashcard = new Flashcard("2021-11-29T12:00", "Belgrade", "Serbia");
+    LocalDateTime timeNow = flashcard.getDueDate();
+
+    // test for the intervals of a card that is always right
+    policy.reschedule(flashcard, true, timeNow);
+    System.err.println("This should print out 2021-11-30T12:00: " + flashcard.getDueDate());
+    policy.reschedule(flashcard, true, flashcard.getDueDate());
+    System.err.println("This should print out 2021-12-06T12:00: " + flashcard.getDueDate());
+    policy.reschedule(flashcard, true, flashcard.getDueDate());
+    System.err.println("This should print out 16 days, ease 280: " + intervalDays(flashcard.getSchedule()) + " days, ease "
+        + ease(flashcard.getSchedule()));
+
+    // test for a wrong answer
+    policy.reschedule(flashcard, false, flashcard.getDueDate());
+    System.err.println("This should print out 2021-12-22T12:01: " + flashcard.getDueDate());
+    System.err.println("This should print out 0 repetitions, ease 226: " + repetitions(flashcard.getSchedule()) + " repetitions, ease "
+        + ease(flashcard.getSchedule()));
+    policy.reschedule(flashcard, true, flashcard.getDueDate());
+    System.err.println("This should print out 1 days: " + intervalDays(flashcard.getSchedule()) + " days");
+
+    // test for the other policies
+    Flashcard leitner = new Flashcard("2021-11-29T12:00", "Zagreb", "Croatia");
+    LeitnerPolicy leitnerPolicy = new LeitnerPolicy();
+    for (int i = 0; i < 8; i++) {
+      leitnerPolicy.reschedule(leitner, true, timeNow);
+    }
+    System.err.println("This should print out box 6, 2021-12-31T12:00: box " + leitner.getSchedule() + ", " + leitner.getDueDate());
+    new FixedIntervalPolicy().reschedule(leitner, false, timeNow);
+    System.err.println("This should print out 2021-11-29T12:01: " + leitner.getDueDate());
+
+    // test for a deck that switches policies: each reads the other's schedule as a new card's
+    policy.reschedule(leitner, true, timeNow);
+    System.err.println("This should print out 2021-11-30T12:00, ease 260: " + leitner.getDueDate() + ", ease " + ease(leitner.getSchedule()));
+    policy.reschedule(leitner, true, leitner.getDueDate());
+    policy.reschedule(leitner, true, leitner.getDueDate());
+    System.err.println("This should print out 16 days: " + intervalDays(leitner.getSchedule()) + " days");
+    leitnerPolicy.reschedule(leitner, true, timeNow);
+    System.err.println("This should print out box 1, 2021-11-30T12:00: box " + leitner.getSchedule() + ", " + leitner.getDueDate());
+  }
+}
@@ -0,0 +1,32 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+
+/**
+ * Decides when a graded flashcard is due again. A policy may remember something
+ * about each card between reviews (how often it was right, how easy it is) in the
+ * card's schedule; a card that was never graded has a schedule of 0.
+ * FixedIntervalPolicy is how the quiz has always worked; LeitnerPolicy and
+ * SM2Policy space the reviews of well known cards further and further apart.
+ * @author Aris Karamustafic
+ */
+
+public interface SchedulingPolicy {
+
+  /** Sets the new due date (and schedule) of flashcard, which was graded correct or not at timeNow. */
+  public void reschedule(Flashcard flashcard, boolean correct, LocalDateTime timeNow);
+
+  /** Returns the policy called name (fixed, leitner or sm2), with its default settings. */
+  public static SchedulingPolicy forName(String name) {
+    switch (name) {
+      case "fixed":
+        return new FixedIntervalPolicy();
+      case "leitner":
+        return new LeitnerPolicy();
+      case "sm2":
+        return new SM2Policy();
+      default:
+        throw new IllegalArgumentException("No scheduling policy called " + name + "; use fixed, leitner or sm2");
+    }
+  }
+}
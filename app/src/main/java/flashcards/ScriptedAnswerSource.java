@@ -0,0 +1,140 @@
+package flashcards;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Replays a session from recorded input: the same words a user would type at the
+ * console, one per line, without the returns that reveal the back of a card. For
+ * example
+ *
+ *   quiz
+ *   1
+ *   2
+ *   save
+ *   deck.txt
+ *   exit
+ *
+ * Blank lines are ignored, and so is a line that does not fit the question (e.g. a
+ * 3 as a grade), just as the console would ask again; such lines, and the lines
+ * left when the session ends, are reported by getProblems. Nothing is printed, so
+ * a script of millions of answers runs as fast as the deck can take them.
+ * @author Aris Karamustafic
+ */
+
+public class ScriptedAnswerSource implements AnswerSource {
+
+  private Iterator<String> lines;
+  private BufferedReader reader;                // null when the lines are given in memory
+  private int grades;                           // number of grades given so far
+  private int lineNumber;                       // number of lines read so far
+  private final List<String> problems = new ArrayList<String>();
+
+  /** Replays the lines of reader, which is closed when they run out. */
+  public ScriptedAnswerSource(BufferedReader reader) {
+    this.reader = reader;
+    lines = reader.lines().iterator();
+  }
+
+  /** Replays lines, e.g. a list built by a test or an import. */
+  public ScriptedAnswerSource(Iterable<String> lines) {
+    this.lines = lines.iterator();
+  }
+
+  public ScriptedAnswerSource(String... lines) {
+    this(Arrays.asList(lines));
+  }
+
+  /** Replays the file at path. */
+  public static ScriptedAnswerSource fromFile(String path) throws IOException {
+    return new ScriptedAnswerSource(Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8));
+  }
+
+  /** Returns the number of grades given so far. */
+  public int getGrades() {
+    return grades;
+  }
+
+  /**
+   * Returns the lines that were skipped, as "line N: reason". Call finish first to
+   * have the lines the session did not get to reported too.
+   */
+  public List<String> getProblems() {
+    return problems;
+  }
+
+  /**
+   * Reads the lines that are left once the session has ended (e.g. grades after
+   * exit, or after the last due card), reports them and closes the file.
+   */
+  public void finish() {
+    int first = lineNumber + 1;
+    int left = 0;
+    while (nextLine() != null) {
+      left++;
+    }
+    if (left > 0) {
+      problems.add("lines " + first + " to " + lineNumber + ": " + left + " lines were not replayed, since the session ended before them");
+    }
+  }
+
+  /** Returns the next line that is not blank, or null if there are none left. */
+  private String nextLine() {
+    while (lines.hasNext()) {
+      String line = lines.next().trim();
+      lineNumber++;
+      if (!line.isEmpty()) {
+        return line;
+      }
+    }
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      reader = null;
+      lines = Collections.emptyIterator();      // the closed reader's lines can not be asked for again
+    }
+    return null;
+  }
+
+  public String nextCommand() {
+    String commandWord = nextLine();
+    while (commandWord != null && !commandWord.equals("quiz") && !commandWord.equals("save")
+        && !commandWord.equals("exit") && !commandWord.equals("stats")) {
+      problems.add("line " + lineNumber + ": '" + commandWord + "' is not a command (quiz, save, stats or exit)");
+      commandWord = nextLine();
+    }
+    return commandWord;
+  }
+
+  public String nextFileName(boolean again) {
+    return nextLine();
+  }
+
+  public void show(Flashcard flashcard) {
+  }
+
+  public int grade(Flashcard flashcard) {
+    String answer = nextLine();
+    while (answer != null && !answer.equals("1") && !answer.equals("2")) {
+      problems.add("line " + lineNumber + ": '" + answer + "' is not a grade (1 or 2)");
+      answer = nextLine();
+    }
+    if (answer == null) {
+      return NO_ANSWER;
+    }
+    grades++;
+    return answer.equals("1") ? CORRECT : INCORRECT;
+  }
+}
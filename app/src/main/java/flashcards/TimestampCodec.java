@@ -0,0 +1,293 @@
+package flashcards;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Random;
+
+/**
+ * Reads and writes the due dates of the deck format (YYYY-MM-DDTHH:MM, optionally
+ * with seconds and a fraction of a second) without making a LocalDateTime, a
+ * String or any other object on the way. A due date is read into a due key (see
+ * Flashcard.toDueKey) and the nanoseconds past its millisecond, and written back
+ * the way LocalDateTime.toString would write it. Dates the fast path does not
+ * handle (years before 0000 or after 9999, or text that is not quite in the
+ * format) go through the JDK's formatter instead, so they are read and rejected
+ * exactly as before.
+ * @author Aris Karamustafic
+ */
+
+public final class TimestampCodec {
+
+  /** Returned by parseDueKey for text it leaves to LocalDateTime.parse. */
+  public static final long NOT_PARSED = Long.MIN_VALUE;
+
+  /** The most chars format writes, for a LocalDateTime such as +999999999-12-31T23:59:59.999999999. */
+  public static final int MAX_LENGTH = 35;
+
+  private static final long DAYS_0000_TO_1970 = 719528;      // days from 0000-01-01 to 1970-01-01
+  private static final int MIN_FAST_LENGTH = 16;              // YYYY-MM-DDTHH:MM
+  private static final int MAX_FAST_LENGTH = 29;              // YYYY-MM-DDTHH:MM:SS.nnnnnnnnn
+  private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);    // for append
+
+  private TimestampCodec() {
+  }
+
+  /**
+   * Reads the date from start to end (exclusive) of text as a due key, or returns
+   * NOT_PARSED if it is not a plain YYYY-MM-DDTHH:MM[:SS[.fraction]] date of the
+   * years 0000 to 9999. Digits of the fraction past the millisecond are read by
+   * parseNanos.
+   */
+  public static long parseDueKey(CharSequence text, int start, int end) {
+    int length = end - start;
+    if (length < MIN_FAST_LENGTH || length > MAX_FAST_LENGTH
+        || text.charAt(start + 4) != '-' || text.charAt(start + 7) != '-'
+        || text.charAt(start + 10) != 'T' || text.charAt(start + 13) != ':') {
+      return NOT_PARSED;
+    }
+    int year = digits(text, start, 4);
+    int month = digits(text, start + 5, 2);
+    int day = digits(text, start + 8, 2);
+    int hour = digits(text, start + 11, 2);
+    int minute = digits(text, start + 14, 2);
+    int second = 0;
+    int millis = 0;
+    if (length > MIN_FAST_LENGTH) {                                // :SS, and maybe .fraction
+      if (length < 19 || text.charAt(start + 16) != ':') {
+        return NOT_PARSED;
+      }
+      second = digits(text, start + 17, 2);
+      if (length > 19) {
+        if (length < 21 || text.charAt(start + 19) != '.') {
+          return NOT_PARSED;
+        }
+        for (int i = 0; i < 3; i++) {                              // the first three digits of the fraction, padded with zeros
+          int digit = (start + 20 + i < end) ? digit(text.charAt(start + 20 + i)) : 0;
+          millis = (digit < 0 || millis < 0) ? -1 : millis * 10 + digit;
+        }
+        for (int i = start + 23; i < end; i++) {
+          if (digit(text.charAt(i)) < 0) {
+            return NOT_PARSED;
+          }
+        }
+      }
+    }
+    if ((year | month | day | hour | minute | second | millis) < 0         // a char that was not a digit
+        || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+        || hour > 23 || minute > 59 || second > 59) {
+      return NOT_PARSED;
+    }
+    long seconds = (daysSince1970(year, month, day) * 24 + hour) * 3600 + minute * 60 + second;
+    return seconds * 1000 + millis;
+  }
+
+  /**
+   * Returns the nanoseconds past the millisecond in the fraction of a date that
+   * parseDueKey read, i.e. its 4th to 9th digits (0 if there are none).
+   */
+  public static int parseNanos(CharSequence text, int start, int end) {
+    int nanos = 0;
+    for (int i = 0; i < 6; i++) {
+      int position = start + 23 + i;
+      nanos = nanos * 10 + ((position < end) ? digit(text.charAt(position)) : 0);
+    }
+    return nanos;
+  }
+
+  /** Reads a date in the deck format, through the JDK if it is not one parseDueKey reads. */
+  public static LocalDateTime parse(CharSequence text) {
+    long dueKey = parseDueKey(text, 0, text.length());
+    if (dueKey == NOT_PARSED) {
+      return LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+    return toLocalDateTime(dueKey, parseNanos(text, 0, text.length()));
+  }
+
+  /** Returns the date of a due key and the nanoseconds past its millisecond. */
+  public static LocalDateTime toLocalDateTime(long dueKey, int nanos) {
+    return LocalDateTime.ofEpochSecond(Math.floorDiv(dueKey, 1000), Math.floorMod(dueKey, 1000) * 1_000_000 + nanos, ZoneOffset.UTC);
+  }
+
+  /**
+   * Writes the date of dueKey and nanos (past the millisecond) into chars from
+   * offset, as LocalDateTime.toString would, and returns how many chars it wrote
+   * (at most MAX_LENGTH).
+   */
+  public static int format(long dueKey, int nanos, char[] chars, int offset) {
+    long seconds = Math.floorDiv(dueKey, 1000);
+    long days = Math.floorDiv(seconds, 86400);
+    int secondOfDay = Math.floorMod(seconds, 86400);
+    long date = civil(days);                                       // year * 10000 + month * 100 + day
+    if (date < 0 || date > 9999_12_31) {
+      String text = toLocalDateTime(dueKey, nanos).toString();     // outside the fast path's years
+      text.getChars(0, text.length(), chars, offset);
+      return text.length();
+    }
+    int position = offset;
+    position = put(chars, position, (int) (date / 10000), 4);
+    chars[position++] = '-';
+    position = put(chars, position, (int) (date / 100 % 100), 2);
+    chars[position++] = '-';
+    position = put(chars, position, (int) (date % 100), 2);
+    chars[position++] = 'T';
+    position = put(chars, position, secondOfDay / 3600, 2);
+    chars[position++] = ':';
+    position = put(chars, position, secondOfDay / 60 % 60, 2);
+    int nanoOfSecond = Math.floorMod(dueKey, 1000) * 1_000_000 + nanos;
+    int second = secondOfDay % 60;
+    if (second > 0 || nanoOfSecond > 0) {                          // LocalTime.toString leaves out zero seconds,
+      chars[position++] = ':';
+      position = put(chars, position, second, 2);
+      if (nanoOfSecond > 0) {                                      // and writes the fraction in groups of three digits
+        chars[position++] = '.';
+        if (nanoOfSecond % 1_000_000 == 0) {
+          position = put(chars, position, nanoOfSecond / 1_000_000, 3);
+        } else if (nanoOfSecond % 1000 == 0) {
+          position = put(chars, position, nanoOfSecond / 1000, 6);
+        } else {
+          position = put(chars, position, nanoOfSecond, 9);
+        }
+      }
+    }
+    return position - offset;
+  }
+
+  /** Appends the date of dueKey and nanos to builder, as LocalDateTime.toString would write it. */
+  public static StringBuilder append(StringBuilder builder, long dueKey, int nanos) {
+    char[] chars = BUFFER.get();
+    return builder.append(chars, 0, format(dueKey, nanos, chars, 0));
+  }
+
+  /** Returns count digits from start as a number, or -1 if one of them is not a digit. */
+  private static int digits(CharSequence text, int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = digit(text.charAt(i));
+      if (digit < 0) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int digit(char c) {
+    return (c >= '0' && c <= '9') ? c - '0' : -1;
+  }
+
+  /** Writes value as count digits, padded with zeros, and returns the position after them. */
+  private static int put(char[] chars, int position, int value, int count) {
+    for (int i = position + count - 1; i >= position; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+    return position + count;
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    if (month == 2) {
+      boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+      return leap ? 29 : 28;
+    }
+    return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+  }
+
+  /** Days from 1970-01-01 to the given date of the proleptic Gregorian calendar (as LocalDate.toEpochDay). */
+  private static long daysSince1970(int year, int month, int day) {
+    long y = (month <= 2) ? year - 1 : year;                       // years start in March, so the leap day is last
+    long era = Math.floorDiv(y, 400);
+    long yearOfEra = y - era * 400;
+    long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - DAYS_0000_TO_1970 + 60;       // 0000-03-01 is 60 days after 0000-01-01
+  }
+
+  /** The date days after 1970-01-01, as year * 10000 + month * 100 + day (negative before 0000-03-01). */
+  private static long civil(long days) {
+    long z = days + DAYS_0000_TO_1970 - 60;                        // days since 0000-03-01
+    long era = Math.floorDiv(z, 146097);
+    long dayOfEra = z - era * 146097;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    long shiftedMonth = (5 * dayOfYear + 2) / 153;                 // 0 is March
+    long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return (year < 0) ? -1 : year * 10000 + month * 100 + day;
+  }
+
+  /** Returns true if parseDueKey, parseNanos, parse and append agree with LocalDateTime on text. */
+  private static boolean agreesWithJdk(String text) {
+    LocalDateTime date = LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    long dueKey = parseDueKey(text, 0, text.length());
+    boolean fastPath = dueKey != NOT_PARSED;
+    if (!fastPath) {
+      dueKey = Flashcard.toDueKey(date);                         // the fallback: only parse and append are left to check
+    } else if (dueKey != Flashcard.toDueKey(date) || parseNanos(text, 0, text.length()) != date.getNano() % 1_000_000) {
+      return false;
+    }
+    return parse(text).equals(date) && append(new StringBuilder(), dueKey, date.getNano() % 1_000_000).toString().equals(date.toString());
+  }
+
+  public static void main(String[] args) {
+
+    // test against LocalDateTime on random dates, without seconds, with seconds, in millis and in nanos
+    Random random = new Random(19);
+    int mismatches = 0;
+    for (int i = 0; i < 200_000; i++) {
+      LocalDateTime date = LocalDateTime.of(random.nextInt(9999), 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+      if (i % 4 > 0) {
+        date = date.withSecond(random.nextInt(60));
+      }
+      if (i % 4 == 2) {
+        date = date.withNano(random.nextInt(1000) * 1_000_000);
+      } else if (i % 4 == 3) {
+        date = date.withNano(random.nextInt(1_000_000_000));
+      }
+      if (!agreesWithJdk(date.toString())) {
+        mismatches++;
+      }
+    }
+    System.err.println("This should print out 0: " + mismatches);
+
+    // test for edge cases: short fractions, leap days, the ends of the fast path's years and dates before 1970
+    String[] edges = {"2021-11-29T12:07", "2021-11-29T12:07:05", "2021-11-29T12:07:00.5", "2021-11-29T12:07:00.1234",
+        "2021-11-29T12:07:00.123456789", "2024-02-29T00:00", "2000-02-29T23:59:59.999", "0000-01-01T00:00",
+        "9999-12-31T23:59:59.999999999", "1969-12-31T23:59:59.999999", "1970-01-01T00:00:00.000000001"};
+    StringBuilder failed = new StringBuilder();
+    for (String edge : edges) {
+      if (!agreesWithJdk(edge)) {
+        failed.append(edge).append(' ');
+      }
+    }
+    System.err.println("This should print out nothing: " + failed);
+
+    // test for the fallback to the JDK: years outside 0000 to 9999 are read and written all the same
+    System.err.println("This should print out true true: " + (parseDueKey("+10000-01-01T00:00", 0, 18) == NOT_PARSED) + " "
+        + (agreesWithJdk("+10000-01-01T00:00") && agreesWithJdk("-0001-06-15T08:30:15.25")));
+
+    // test for text that is almost a date: rejected exactly when LocalDateTime.parse rejects it
+    int disagreements = 0;
+    for (String almost : new String[] {"2021-02-29T12:00", "2021-11-29 12:07", "2021-11-29T24:00", "2021-11-29T12:07:00.",
+        "2021-1x-29T12:07", "2021-11-29T12:7", "2021-11-29T12:07:00.1234567890"}) {
+      boolean codecRejects = false;
+      boolean jdkRejects = false;
+      try {
+        parse(almost);
+      } catch (DateTimeParseException e) {
+        codecRejects = true;
+      }
+      try {
+        LocalDateTime.parse(almost, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+      } catch (DateTimeParseException e) {
+        jdkRejects = true;
+      }
+      if (codecRejects != jdkRejects) {
+        disagreements++;
+      }
+    }
+    System.err.println("This should print out 0: " + disagreements);
+  }
+}
@@ -0,0 +1,308 @@
+package flashcards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hierarchical timing wheel (calendar queue) of flashcards. Due times here are
+ * counted in minutes and are heavily clustered, so instead of comparing cards the
+ * queue drops each one into a bucket for its minute, and add and poll take
+ * amortized O(1) time.
+ *
+ * Minutes are read as numbers in base 64. The queue keeps a cursor, the minute it
+ * has reached, and LEVELS wheels of 64 slots: a card due after the cursor goes to
+ * the lowest wheel whose higher digits it shares with the cursor, in the slot of
+ * its digit for that wheel. So wheel 0 has one slot per minute for the rest of the
+ * cursor's hour-ish block of 64 minutes, wheel 1 one slot per 64 minutes, and
+ * wheel 2 one slot per 4096 minutes (about 2.8 days), about half a year in all.
+ * Cards beyond that wait in an overflow heap. When the queue runs out of cards at
+ * the cursor, it moves the cursor to the first non-empty slot (found with a bitmap
+ * of the non-empty slots of each wheel) and spreads that slot's cards over the
+ * wheels below; a card is moved at most LEVELS times before it is polled.
+ *
+ * Cards due at or before the cursor are kept in a small heap, which also puts the
+ * cards of one minute in order. A heap of cards with the same due time never has
+ * to move anything, so polling a cluster of identical times stays O(1).
+ * @author Aris Karamustafic
+ */
+
+public class TimingWheelFlashcardPriorityQueue implements PriorityQueue<Flashcard> {
+
+  private static final int LEVELS = 3;
+  private static final int SLOT_BITS = 6;
+  private static final int SLOTS = 1 << SLOT_BITS;            // 64 slots in every wheel
+  private static final long MILLIS_PER_MINUTE = 60_000;
+
+  private final ArrayList<Flashcard>[][] wheels;             // wheels[level][slot], made when first needed
+  private final long[] occupied;                            // bit s of occupied[level] is set if wheels[level][s] has cards
+  private final EpochFlashcardPriorityQueue ready;          // cards due at or before the cursor
+  private final EpochFlashcardPriorityQueue overflow;       // cards too far ahead of the cursor for the wheels
+  private long cursor;                                      // the minute the queue has reached
+  private int size;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public TimingWheelFlashcardPriorityQueue() {
+    wheels = new ArrayList[LEVELS][SLOTS];
+    occupied = new long[LEVELS];
+    ready = new EpochFlashcardPriorityQueue();
+    overflow = new EpochFlashcardPriorityQueue();
+    size = 0;
+  }
+
+  /** Returns the minute a card is due in. */
+  private static long minute(Flashcard flashcard) {
+    return Math.floorDiv(flashcard.getDueKey(), MILLIS_PER_MINUTE);
+  }
+
+  /** Adds the given item to the queue. */
+  public void add(Flashcard flashcard) {
+    if (size == 0) {
+      cursor = minute(flashcard);                 // an empty queue can start from any minute, so start from this card's
+    }
+    place(flashcard, minute(flashcard));
+    size++;
+  }
+
+  /** Adds all of the given flashcards. If the queue is empty, the cursor starts at
+   * the earliest of them, so none of them has to go into the heap of ready cards
+   * only because it came after a later card.
+   */
+  @Override
+  public void addAll(Collection<? extends Flashcard> flashcards) {
+    if (size == 0 && !flashcards.isEmpty()) {
+      long earliest = Long.MAX_VALUE;
+      for (Flashcard flashcard : flashcards) {
+        earliest = Math.min(earliest, minute(flashcard));
+      }
+      cursor = earliest;
+    }
+    for (Flashcard flashcard : flashcards) {
+      place(flashcard, minute(flashcard));
+      size++;
+    }
+  }
+
+  /** Puts flashcard, which is due in minute, where it belongs for the current cursor. */
+  private void place(Flashcard flashcard, long minute) {
+    if (minute <= cursor) {
+      ready.add(flashcard);
+      return;
+    }
+    for (int level = 0; level < LEVELS; level++) {
+      int shift = SLOT_BITS * (level + 1);
+      if ((minute >> shift) == (cursor >> shift)) {                    // the card shares every digit above this wheel with the cursor
+        int slot = (int) (minute >> (SLOT_BITS * level)) & (SLOTS - 1);
+        if (wheels[level][slot] == null) {
+          wheels[level][slot] = new ArrayList<Flashcard>();
+        }
+        wheels[level][slot].add(flashcard);
+        occupied[level] |= 1L << slot;
+        return;
+      }
+    }
+    overflow.add(flashcard);
+  }
+
+  /** Moves the cursor forward until there are ready cards, if there are any cards. */
+  private void advance() {
+    while (ready.isEmpty() && size > 0) {
+      int level = 0;
+      while (level < LEVELS && occupied[level] == 0) {
+        level++;
+      }
+      if (level == LEVELS) {                                           // the wheels are empty, so jump to the first overflow card
+        cursor = minute(overflow.peek());
+        pullOverflow();
+        continue;
+      }
+      int slot = Long.numberOfTrailingZeros(occupied[level]);         // every occupied slot is after the cursor, so the lowest is the next
+      int shift = SLOT_BITS * level;
+      long blockStart = (cursor >> (shift + SLOT_BITS)) << (shift + SLOT_BITS);
+      cursor = blockStart | ((long) slot << shift);                   // the first minute of that slot
+      ArrayList<Flashcard> cards = wheels[level][slot];
+      occupied[level] &= ~(1L << slot);
+      wheels[level][slot] = null;
+      for (Flashcard flashcard : cards) {                              // spread the slot over the wheels below it
+        place(flashcard, minute(flashcard));
+      }
+    }
+  }
+
+  /** Moves the overflow cards that now fit in the wheels (or are ready) into them. */
+  private void pullOverflow() {
+    int shift = SLOT_BITS * LEVELS;
+    while (!overflow.isEmpty() && (minute(overflow.peek()) >> shift) <= (cursor >> shift)) {
+      Flashcard flashcard = overflow.poll();
+      place(flashcard, minute(flashcard));
+    }
+  }
+
+  /** Removes the first item according to compareTo from the queue, and returns it.
+   * Throws a NoSuchElementException if the queue is empty.
+   */
+  public Flashcard poll() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    advance();
+    size--;
+    return ready.poll();
+  }
+
+  /** Returns the first item according to compareTo in the queue, without removing it.
+   * Throws a NoSuchElementException if the queue is empty.
+   */
+  public Flashcard peek() {
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    advance();                                    // only moves cards between buckets, the queue holds the same cards
+    return ready.peek();
+  }
+
+  /** Returns an iterator over the flashcards from earliest to latest due date,
+   * without changing the queue: first the ready cards, then every slot of wheel 0,
+   * wheel 1 and wheel 2 in turn (each slot is sorted when the iterator reaches it),
+   * then the overflow cards. The queue must not be changed while iterating.
+   */
+  public Iterator<Flashcard> orderedIterator() {
+    return new Iterator<Flashcard>() {
+      private Iterator<Flashcard> current = ready.orderedIterator();
+      private int nextSlot = 0;                    // the next slot to read, counting the slots of all wheels in order
+
+      public boolean hasNext() {
+        while (!current.hasNext()) {
+          if (nextSlot > LEVELS * SLOTS) {
+            return false;
+          }
+          if (nextSlot == LEVELS * SLOTS) {
+            current = overflow.orderedIterator();
+          } else {
+            ArrayList<Flashcard> cards = wheels[nextSlot / SLOTS][nextSlot % SLOTS];
+            if (cards != null) {
+              Flashcard[] sorted = cards.toArray(new Flashcard[cards.size()]);
+              Arrays.sort(sorted);                 // by compareTo, so cards due in the same millisecond come out as poll returns them
+              current = Arrays.asList(sorted).iterator();
+            }
+          }
+          nextSlot++;
+        }
+        return true;
+      }
+
+      public Flashcard next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+
+  /** Returns true if the queue is empty. */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Returns the number of flashcards in the queue. */
+  public int size() {
+    return size;
+  }
+
+  /** Removes all items from the queue. */
+  public void clear() {
+    for (int level = 0; level < LEVELS; level++) {
+      Arrays.fill(wheels[level], null);
+      occupied[level] = 0;
+    }
+    ready.clear();
+    overflow.clear();
+    size = 0;
+  }
+
+  public static void main(String[] args) {
+
+    TimingWheelFlashcardPriorityQueue flashcards = new TimingWheelFlashcardPriorityQueue();
+    Flashcard f1 = new Flashcard("2021-11-29T12:11", "Belgrade", "Serbia");
+    Flashcard f2 = new Flashcard("2021-11-29T12:10", "Sarajevo", "Bosnia and Herzegovina");
+    Flashcard f3 = new Flashcard("2021-11-29T12:08", "Zagreb", "Croatia");
+    Flashcard f4 = new Flashcard("2021-11-29T12:08:30", "Podgorica", "Montenegro");
+    Flashcard f5 = new Flashcard("2021-12-01T12:12", "Ljubljana", "Slovenia");
+    Flashcard f6 = new Flashcard("2021-11-29T12:07", "Tirana", "Albania");
+    Flashcard f7 = new Flashcard("2031-11-29T12:09", "Pristine", "Kosovo");
+
+    // test for add() and peek()
+    flashcards.add(f1);
+    System.err.println("This should print out Belgrade: " + flashcards.peek().getFrontText());
+    flashcards.add(f2);
+    System.err.println("This should print out Sarajevo: " + flashcards.peek().getFrontText());
+    flashcards.add(f3);
+    System.err.println("This should print out Zagreb: " + flashcards.peek().getFrontText());
+    flashcards.add(f4);
+    System.err.println("This should print out Zagreb: " + flashcards.peek().getFrontText());
+    flashcards.add(f5);
+    flashcards.add(f6);
+    System.err.println("This should print out Tirana: " + flashcards.peek().getFrontText());
+    flashcards.add(f7);
+
+    // test for orderedIterator()
+    StringBuilder order = new StringBuilder();
+    for (Iterator<Flashcard> it = flashcards.orderedIterator(); it.hasNext(); ) {
+      order.append(it.next().getFrontText()).append(' ');
+    }
+    System.err.println("This should print out Tirana Zagreb Podgorica Sarajevo Belgrade Ljubljana Pristine: " + order.toString().trim());
+
+    // test for poll(), across the wheels and the overflow heap
+    System.err.println("This should print out Tirana: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Zagreb: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Podgorica: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Sarajevo: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Belgrade: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Ljubljana: " + flashcards.poll().getFrontText());
+    System.err.println("This should print out Pristine: " + flashcards.poll().getFrontText());
+
+    // test for clear() and isEmpty()
+    flashcards.addAll(java.util.Arrays.asList(f1, f2, f3));
+    if (flashcards.isEmpty()) {
+      System.err.println("The queue is not empty, but isEmpty() returns true.");
+    }
+    flashcards.clear();
+    if (!flashcards.isEmpty()) {
+      System.err.println("The queue is supposed to be empty after calling clear(), but isEmpty() returns false.");
+    }
+
+    // test against FlashcardPriorityQueue with random adds and polls, as a quiz makes them
+    java.util.Random random = new java.util.Random(13);
+    FlashcardPriorityQueue heap = new FlashcardPriorityQueue();
+    long start = Flashcard.toDueKey(java.time.LocalDateTime.of(2021, 11, 29, 12, 0));
+    int mismatches = 0;
+    for (int i = 0; i < 200000; i++) {
+      if (random.nextInt(3) > 0 || heap.isEmpty()) {
+        long[] offsets = {60_000, 86_400_000, 0, 365L * 86_400_000};
+        long key = start + offsets[random.nextInt(4)] * random.nextInt(3) + random.nextInt(120_000);
+        Flashcard flashcard = new Flashcard(Flashcard.fromDueKey(key), "", "");
+        heap.add(flashcard);
+        flashcards.add(flashcard);
+      } else {
+        Flashcard expected = heap.poll();
+        Flashcard actual = flashcards.poll();
+        if (expected.getDueKey() != actual.getDueKey()) {
+          mismatches++;
+        }
+        start = expected.getDueKey();                   // later cards are due after the last one shown, like in a quiz
+      }
+    }
+    System.err.println("This should print out 0: " + mismatches);
+
+    // test for orderedIterator() with cards due in the same millisecond
+    flashcards.clear();
+    flashcards.add(new Flashcard("2021-11-29T12:07:00.000000500", "Skopje", "North Macedonia"));
+    flashcards.add(new Flashcard("2021-11-29T12:07", "Tirana", "Albania"));
+    Iterator<Flashcard> sameMillisecond = flashcards.orderedIterator();
+    System.err.println("This should print out Tirana Skopje: " + sameMillisecond.next().getFrontText() + " " + sameMillisecond.next().getFrontText());
+    System.err.println("This should print out Tirana: " + flashcards.poll().getFrontText());
+  }
+}
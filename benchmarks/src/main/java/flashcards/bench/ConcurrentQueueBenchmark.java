@@ -0,0 +1,132 @@
+package flashcards.bench;
+
+import flashcards.ConcurrentFlashcardPriorityQueue;
+import flashcards.Flashcard;
+import flashcards.FlashcardPriorityQueue;
+import flashcards.PriorityQueue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how the concurrent queue holds up under contention compared to a
+ * single heap behind one lock. Every thread repeatedly polls a card and adds it
+ * back with a new due date, like a learner session grading cards.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar flashcards.bench.ConcurrentQueueBenchmark [cards] [seconds per run]
+ *
+ * prints add+poll pairs per second for 1, 2, 4, ... up to twice the number of
+ * processors threads.
+ * @author Aris Karamustafic
+ */
+
+public class ConcurrentQueueBenchmark {
+
+  /** A FlashcardPriorityQueue where every method holds the queue's monitor. */
+  private static class SynchronizedFlashcardPriorityQueue implements PriorityQueue<Flashcard> {
+
+    private final FlashcardPriorityQueue heap = new FlashcardPriorityQueue();
+
+    public synchronized void add(Flashcard flashcard) {
+      heap.add(flashcard);
+    }
+
+    public synchronized Flashcard poll() {
+      return heap.poll();
+    }
+
+    public synchronized Flashcard peek() {
+      return heap.peek();
+    }
+
+    public synchronized Iterator<Flashcard> orderedIterator() {
+      return heap.orderedIterator();
+    }
+
+    public synchronized boolean isEmpty() {
+      return heap.isEmpty();
+    }
+
+    public synchronized void clear() {
+      heap.clear();
+    }
+  }
+
+  private interface QueueFactory {
+    PriorityQueue<Flashcard> create();
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+    int cards = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+    int seconds = (args.length > 1) ? Integer.parseInt(args[1]) : 3;
+    int maxThreads = 2 * Runtime.getRuntime().availableProcessors();
+    List<Flashcard> deck = syntheticDeck(cards);
+
+    String[] names = {"synchronized heap", "concurrent, strict", "concurrent, relaxed"};
+    QueueFactory[] factories = {
+      () -> new SynchronizedFlashcardPriorityQueue(),
+      () -> new ConcurrentFlashcardPriorityQueue(maxThreads, true),
+      () -> new ConcurrentFlashcardPriorityQueue(maxThreads, false)
+    };
+    System.out.println(cards + " cards, " + seconds + "s per run");
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      for (int i = 0; i < names.length; i++) {
+        PriorityQueue<Flashcard> queue = factories[i].create();
+        queue.addAll(deck);
+        double opsPerSecond = run(queue, threads, seconds);
+        System.out.printf("%2d threads  %-20s %,14.0f ops/s%n", threads, names[i], opsPerSecond);
+      }
+    }
+  }
+
+  /** Runs threads poll/add loops against queue for the given time and returns pairs per second. */
+  private static double run(PriorityQueue<Flashcard> queue, int threads, int seconds) throws InterruptedException {
+    AtomicBoolean running = new AtomicBoolean(true);
+    LongAdder operations = new LongAdder();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<Thread>();
+    for (int t = 0; t < threads; t++) {
+      Thread worker = new Thread(() -> {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long done = 0;
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+        while (running.get()) {
+          Flashcard flashcard = queue.poll();
+          queue.add(new Flashcard(flashcard.getDueDate().plusMinutes(1 + random.nextInt(1440)), flashcard.getFrontText(), flashcard.getBackText()));
+          done++;
+        }
+        operations.add(done);
+      });
+      worker.start();
+      workers.add(worker);
+    }
+    long startTime = System.nanoTime();
+    start.countDown();
+    Thread.sleep(seconds * 1000L);
+    running.set(false);
+    for (Thread worker : workers) {
+      worker.join();
+    }
+    return operations.sum() / ((System.nanoTime() - startTime) / 1e9);
+  }
+
+  private static List<Flashcard> syntheticDeck(int cards) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    LocalDateTime base = LocalDateTime.of(2021, 11, 29, 12, 0);
+    List<Flashcard> deck = new ArrayList<Flashcard>(cards);
+    for (int i = 0; i < cards; i++) {
+      deck.add(new Flashcard(base.plusMinutes(random.nextInt(60 * 24 * 30)), "Question " + i, "Answer " + i));
+    }
+    return deck;
+  }
+}
@@ -0,0 +1,71 @@
+package flashcards.bench;
+
+import flashcards.FlashcardDisplayer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for the FlashcardDisplayer(String filePath) constructor to load a deck
+ * file, in the text format and in the binary .fcdk format. The review journal is
+ * turned off (-Dflashcards.journal=false), so the time is the load alone, not
+ * opening, syncing and closing a journal as well.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar DeckLoadBenchmark
+ * @author Aris Karamustafic
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "-Dflashcards.journal=false"})
+public class DeckLoadBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  @Param({"uniform", "clustered", "sorted"})
+  public String distribution;
+
+  @Param({"txt", "fcdk"})
+  public String format;
+
+  private Path dir;
+  private Path deck;
+
+  @Setup(Level.Trial)
+  public void writeDeck() throws IOException {
+    dir = Files.createTempDirectory("deck-load");
+    deck = SyntheticDecks.write(dir, size, distribution, format);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteDeck() throws IOException {
+    SyntheticDecks.delete(dir);
+  }
+
+  @Benchmark
+  public FlashcardDisplayer load() {
+    FlashcardDisplayer displayer = new FlashcardDisplayer(deck.toString());
+    displayer.close();
+    return displayer;
+  }
+}
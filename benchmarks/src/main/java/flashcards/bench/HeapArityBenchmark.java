@@ -0,0 +1,99 @@
+package flashcards.bench;
+
+import flashcards.Flashcard;
+import flashcards.FlashcardPriorityQueue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares FlashcardPriorityQueue with different arities on synthetic decks.
+ * For every deck size and arity it times, in nanoseconds per card:
+ *   build  the bulk constructor
+ *   add    adding every card one at a time to an empty queue
+ *   poll   polling every card out again
+ *   hold   a poll followed by an add of the same card with a later due date,
+ *          which is what a quiz does to a deck that stays the same size
+ * Each measurement is repeated and the fastest run is printed.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar flashcards.bench.HeapArityBenchmark [deck size ...]
+ * @author Aris Karamustafic
+ */
+
+public class HeapArityBenchmark {
+
+  private static final int[] ARITIES = {2, 3, 4, 8};
+  private static final int REPEATS = 5;
+
+  public static void main(String[] args) {
+    int[] sizes = {1_000, 100_000, 1_000_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+    System.out.printf("%10s %6s %10s %10s %10s %10s%n", "cards", "arity", "build", "add", "poll", "hold");
+    for (int size : sizes) {
+      List<Flashcard> deck = syntheticDeck(size);
+      for (int arity : ARITIES) {
+        double build = Double.MAX_VALUE;
+        double add = Double.MAX_VALUE;
+        double poll = Double.MAX_VALUE;
+        double hold = Double.MAX_VALUE;
+        for (int repeat = 0; repeat < REPEATS; repeat++) {
+          long start = System.nanoTime();
+          FlashcardPriorityQueue bulk = new FlashcardPriorityQueue(deck, arity);
+          build = Math.min(build, (System.nanoTime() - start) / (double) size);
+
+          start = System.nanoTime();
+          FlashcardPriorityQueue queue = new FlashcardPriorityQueue(arity);
+          for (Flashcard flashcard : deck) {
+            queue.add(flashcard);
+          }
+          add = Math.min(add, (System.nanoTime() - start) / (double) size);
+
+          start = System.nanoTime();
+          for (int i = 0; i < size; i++) {
+            bulk.poll();
+          }
+          poll = Math.min(poll, (System.nanoTime() - start) / (double) size);
+
+          start = System.nanoTime();
+          for (int i = 0; i < size; i++) {
+            Flashcard flashcard = queue.poll();
+            flashcard.setDueDate(flashcard.getDueDate().plusMinutes(1 + (i & 1023)));
+            queue.add(flashcard);
+          }
+          hold = Math.min(hold, (System.nanoTime() - start) / (double) size);
+          restore(deck);
+        }
+        System.out.printf("%10d %6d %10.1f %10.1f %10.1f %10.1f%n", size, arity, build, add, poll, hold);
+      }
+    }
+  }
+
+  private static LocalDateTime[] originalDueDates;
+
+  /** Makes a deck with due dates spread uniformly over 30 days. */
+  private static List<Flashcard> syntheticDeck(int size) {
+    Random random = new Random(42);
+    LocalDateTime base = LocalDateTime.of(2021, 11, 29, 12, 0);
+    List<Flashcard> deck = new ArrayList<Flashcard>(size);
+    originalDueDates = new LocalDateTime[size];
+    for (int i = 0; i < size; i++) {
+      originalDueDates[i] = base.plusMinutes(random.nextInt(60 * 24 * 30));
+      deck.add(new Flashcard(originalDueDates[i], "Question " + i, "Answer " + i));
+    }
+    return deck;
+  }
+
+  /** Undoes the due date changes made by the hold measurement. */
+  private static void restore(List<Flashcard> deck) {
+    for (int i = 0; i < deck.size(); i++) {
+      deck.get(i).setDueDate(originalDueDates[i]);
+    }
+  }
+}
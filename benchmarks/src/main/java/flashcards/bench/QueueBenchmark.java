@@ -0,0 +1,157 @@
+package flashcards.bench;
+
+import flashcards.Flashcard;
+import flashcards.FlashcardPriorityQueue;
+import flashcards.PriorityQueue;
+import flashcards.TimingWheelFlashcardPriorityQueue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FlashcardPriorityQueue and TimingWheelFlashcardPriorityQueue against
+ * java.util.PriorityQueue on the same decks.
+ *   add         adds the whole deck to an empty queue, one card at a time
+ *   poll        polls every card out of a full queue
+ *   peek        looks at the first card of a full queue
+ *   pollAndAdd  polls a card and adds it back due one day later, as a quiz does
+ * add and poll report the time for the whole deck, peek and pollAndAdd per call.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar QueueBenchmark
+ * @author Aris Karamustafic
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class QueueBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int size;
+
+  @Param({"uniform", "clustered", "sorted"})
+  public String distribution;
+
+  @Param({"FlashcardPriorityQueue", "TimingWheelFlashcardPriorityQueue", "java.util.PriorityQueue"})
+  public String queue;
+
+  private List<Flashcard> deck;
+  private long[] dueKeys;                              // the deck's due dates before pollAndAdd moved them
+  private PriorityQueue<Flashcard> flashcards;         // one of ours, or null when measuring java.util.PriorityQueue
+  private java.util.PriorityQueue<Flashcard> javaQueue;
+
+  /** A full queue for every call of poll, built outside of the measured time. */
+  @State(Scope.Thread)
+  public static class FullQueue {
+    PriorityQueue<Flashcard> flashcards;
+    java.util.PriorityQueue<Flashcard> javaQueue;
+
+    @Setup(Level.Invocation)
+    public void fill(QueueBenchmark benchmark) {
+      flashcards = benchmark.newQueue();
+      if (flashcards != null) {
+        flashcards.addAll(benchmark.deck);
+      } else {
+        javaQueue = new java.util.PriorityQueue<Flashcard>(benchmark.deck);
+      }
+    }
+  }
+
+  /** Returns an empty queue of the kind being measured, or null for java.util.PriorityQueue. */
+  PriorityQueue<Flashcard> newQueue() {
+    if (queue.equals("FlashcardPriorityQueue")) {
+      return new FlashcardPriorityQueue();
+    } else if (queue.equals("TimingWheelFlashcardPriorityQueue")) {
+      return new TimingWheelFlashcardPriorityQueue();
+    }
+    return null;
+  }
+
+  @Setup(Level.Trial)
+  public void makeDeck() {
+    deck = SyntheticDecks.cards(size, distribution, false);
+    dueKeys = new long[size];
+    for (int i = 0; i < size; i++) {
+      dueKeys[i] = deck.get(i).getDueKey();
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void fill() {
+    for (int i = 0; i < size; i++) {
+      deck.get(i).setDueDate(Flashcard.fromDueKey(dueKeys[i]));
+    }
+    flashcards = newQueue();
+    if (flashcards != null) {
+      flashcards.addAll(deck);
+    } else {
+      javaQueue = new java.util.PriorityQueue<Flashcard>(deck);
+    }
+  }
+
+  @Benchmark
+  public Object add() {
+    PriorityQueue<Flashcard> empty = newQueue();
+    if (empty != null) {
+      for (Flashcard flashcard : deck) {
+        empty.add(flashcard);
+      }
+      return empty;
+    }
+    java.util.PriorityQueue<Flashcard> javaEmpty = new java.util.PriorityQueue<Flashcard>();
+    for (Flashcard flashcard : deck) {
+      javaEmpty.add(flashcard);
+    }
+    return javaEmpty;
+  }
+
+  @Benchmark
+  public Flashcard poll(FullQueue full) {
+    Flashcard last = null;
+    if (full.flashcards != null) {
+      while (!full.flashcards.isEmpty()) {
+        last = full.flashcards.poll();
+      }
+    } else {
+      while (!full.javaQueue.isEmpty()) {
+        last = full.javaQueue.poll();
+      }
+    }
+    return last;
+  }
+
+  @Benchmark
+  public Flashcard peek() {
+    return flashcards != null ? flashcards.peek() : javaQueue.peek();
+  }
+
+  @Benchmark
+  public Flashcard pollAndAdd() {
+    if (flashcards != null) {
+      Flashcard flashcard = flashcards.poll();
+      flashcard.setDueDate(flashcard.getDueDate().plusDays(1));
+      flashcards.add(flashcard);
+      return flashcard;
+    }
+    Flashcard flashcard = javaQueue.poll();
+    flashcard.setDueDate(flashcard.getDueDate().plusDays(1));
+    javaQueue.add(flashcard);
+    return flashcard;
+  }
+}
@@ -0,0 +1,71 @@
+package flashcards.bench;
+
+import flashcards.FlashcardDisplayer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for FlashcardDisplayer.saveFlashcards to write a loaded deck, to a text
+ * file and to a binary .fcdk file.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar SaveBenchmark
+ * @author Aris Karamustafic
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class SaveBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  @Param({"uniform", "clustered", "sorted"})
+  public String distribution;
+
+  @Param({"txt", "fcdk"})
+  public String format;
+
+  private Path dir;
+  private Path out;
+  private FlashcardDisplayer displayer;
+
+  @Setup(Level.Trial)
+  public void loadDeck() throws IOException {
+    dir = Files.createTempDirectory("deck-save");
+    Path deck = SyntheticDecks.write(dir, size, distribution, "txt");
+    displayer = new FlashcardDisplayer(deck.toString());
+    out = dir.resolve("saved." + format);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteDeck() throws IOException {
+    displayer.close();
+    SyntheticDecks.delete(dir);
+  }
+
+  @Benchmark
+  public boolean save() {
+    return displayer.saveFlashcards(out.toString());
+  }
+}
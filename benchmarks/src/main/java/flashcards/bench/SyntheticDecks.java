@@ -0,0 +1,70 @@
+package flashcards.bench;
+
+import flashcards.DeckWriter;
+import flashcards.Flashcard;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Makes the decks the benchmarks run on. The due dates follow one of three
+ * distributions:
+ *   uniform    spread at random over 30 days, in random order
+ *   clustered  all the same, like the cards in SampleFlashcards.txt
+ *   sorted     one minute apart, earliest first, like a deck written by saveFlashcards
+ * @author Aris Karamustafic
+ */
+
+public class SyntheticDecks {
+
+  private static final LocalDateTime BASE = LocalDateTime.of(2021, 11, 29, 12, 3);
+
+  /**
+   * Returns size cards with due dates from the given distribution. If uniqueText
+   * is false every card shares the same front and back strings, which keeps very
+   * large decks small enough to hold in memory.
+   */
+  public static List<Flashcard> cards(int size, String distribution, boolean uniqueText) {
+    Random random = new Random(42);
+    List<Flashcard> deck = new ArrayList<Flashcard>(size);
+    for (int i = 0; i < size; i++) {
+      LocalDateTime dueDate;
+      if (distribution.equals("uniform")) {
+        dueDate = BASE.plusMinutes(random.nextInt(60 * 24 * 30));
+      } else if (distribution.equals("clustered")) {
+        dueDate = BASE;
+      } else if (distribution.equals("sorted")) {
+        dueDate = BASE.plusMinutes(i);
+      } else {
+        throw new IllegalArgumentException("Unknown distribution " + distribution);
+      }
+      String front = uniqueText ? "What country is city " + i + " in?" : "What country is this city in?";
+      String back = uniqueText ? "Country " + (i % 200) : "Country";
+      deck.add(new Flashcard(dueDate, front, back));
+    }
+    return deck;
+  }
+
+  /** Writes a deck of size cards to a new file named deck.<extension> in dir. */
+  public static Path write(Path dir, int size, String distribution, String extension) throws IOException {
+    Path deck = dir.resolve("deck." + extension);
+    DeckWriter.write(cards(size, distribution, true).iterator(), deck.toString());
+    return deck;
+  }
+
+  /** Deletes dir and everything in it. */
+  public static void delete(Path dir) throws IOException {
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(file);
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package flashcards.bench;
+
+import flashcards.Flashcard;
+import flashcards.TimestampCodec;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to read and write one due date with TimestampCodec, against
+ * LocalDateTime.parse and LocalDateTime.toString. Run with -prof gc to see
+ * the bytes allocated per date as well.
+ *
+ *   java -jar benchmarks/target/benchmarks.jar TimestampBenchmark
+ * @author Aris Karamustafic
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimestampBenchmark {
+
+  private static final int DATES = 1024;
+
+  @Param({"minutes", "seconds", "micros"})
+  public String precision;
+
+  private String[] texts;
+  private long[] dueKeys;
+  private int[] dueNanos;
+  private LocalDateTime[] dates;
+  private final char[] chars = new char[TimestampCodec.MAX_LENGTH];
+
+  @Setup
+  public void makeDates() {
+    Random random = new Random(42);
+    LocalDateTime base = LocalDateTime.of(2024, 1, 1, 0, 0);
+    texts = new String[DATES];
+    dueKeys = new long[DATES];
+    dueNanos = new int[DATES];
+    dates = new LocalDateTime[DATES];
+    for (int i = 0; i < DATES; i++) {
+      LocalDateTime date = base.plusMinutes(random.nextInt(60 * 24 * 365));
+      if (!precision.equals("minutes")) {
+        date = date.plusSeconds(1 + random.nextInt(59));
+      }
+      if (precision.equals("micros")) {
+        date = date.plusNanos(1000L * (1 + random.nextInt(999_999)));
+      }
+      dates[i] = date;
+      texts[i] = date.toString();
+      dueKeys[i] = Flashcard.toDueKey(date);
+      dueNanos[i] = date.getNano() % 1_000_000;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DATES)
+  public long parseCodec() {
+    long sum = 0;
+    for (String text : texts) {
+      sum += TimestampCodec.parseDueKey(text, 0, text.length()) + TimestampCodec.parseNanos(text, 0, text.length());
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DATES)
+  public long parseJdk() {
+    long sum = 0;
+    for (String text : texts) {
+      LocalDateTime date = LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+      sum += Flashcard.toDueKey(date) + date.getNano() % 1_000_000;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DATES)
+  public long formatCodec() {
+    long sum = 0;
+    for (int i = 0; i < DATES; i++) {
+      sum += TimestampCodec.format(dueKeys[i], dueNanos[i], chars, 0) + chars[15];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DATES)
+  public long formatJdk() {
+    long sum = 0;
+    for (LocalDateTime date : dates) {
+      sum += date.toString().length();
+    }
+    return sum;
+  }
+}